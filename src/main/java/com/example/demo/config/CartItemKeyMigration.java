@@ -0,0 +1,89 @@
+package com.example.demo.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adds the unique (user_id, product_id) key of {@code cart_items} to databases created before
+ * it existed. Hibernate's schema update cannot add it while a user has two lines for one
+ * product, so those are merged first: the oldest line keeps the summed quantity and the others
+ * are deleted. The cart upsert relies on the key, so startup fails if it cannot be added.
+ * Runs after Hibernate's schema update, which creates the table and the key on a new database.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class CartItemKeyMigration {
+
+    private static final String KEY = "uk_cart_items_user_product";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CartItemKeyMigration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        if (hasKey()) {
+            return;
+        }
+        Integer merged = transactionTemplate.execute(status -> mergeDuplicates());
+        if (merged != null && merged > 0) {
+            log.info("Merged {} duplicate cart lines before adding {}", merged, KEY);
+        }
+        jdbcTemplate.execute("ALTER TABLE cart_items ADD CONSTRAINT " + KEY + " UNIQUE (user_id, product_id)");
+        log.info("Added unique key {} to cart_items", KEY);
+    }
+
+    // Whether some unique index covers exactly (user_id, product_id), whatever its name
+    private boolean hasKey() {
+        Boolean found = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Map<String, Set<String>> columnsByIndex = new HashMap<>();
+            try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, "cart_items", true, false)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (index != null && column != null) {
+                        columnsByIndex.computeIfAbsent(index, name -> new HashSet<>()).add(column.toLowerCase());
+                    }
+                }
+            }
+            return columnsByIndex.containsValue(Set.of("user_id", "product_id"));
+        });
+        return Boolean.TRUE.equals(found);
+    }
+
+    // Returns the number of lines deleted
+    private int mergeDuplicates() {
+        List<Object[]> groups = jdbcTemplate.query(
+                "SELECT user_id, product_id, MIN(id), SUM(quantity) FROM cart_items "
+                        + "WHERE user_id IS NOT NULL AND product_id IS NOT NULL "
+                        + "GROUP BY user_id, product_id HAVING COUNT(*) > 1",
+                (rs, row) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getInt(4)});
+        int deleted = 0;
+        for (Object[] group : groups) {
+            jdbcTemplate.update("UPDATE cart_items SET quantity = ? WHERE id = ?", group[3], group[2]);
+            deleted += jdbcTemplate.update("DELETE FROM cart_items WHERE user_id = ? AND product_id = ? AND id <> ?",
+                    group[0], group[1], group[2]);
+        }
+        return deleted;
+    }
+}
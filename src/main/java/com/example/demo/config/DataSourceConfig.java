@@ -0,0 +1,82 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas, enabled by listing their JDBC URLs in {@code datasource.replicas.urls}.
+ * Without it Spring Boot's single {@code spring.datasource} pool is used unchanged.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replicas.urls")
+public class DataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            DataSourceProperties properties,
+            Environment environment,
+            @Value("${datasource.replicas.urls}") List<String> urls,
+            @Value("${datasource.replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${datasource.replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${datasource.replicas.connection-timeout-ms:2000}") long connectionTimeoutMs,
+            @Value("${datasource.replicas.max-lag-seconds:5}") long maxLagSeconds,
+            @Value("${datasource.replicas.read-your-writes-seconds:10}") long readYourWritesSeconds) {
+        HikariDataSource primary = pool(properties.initializeDataSourceBuilder(), "primary", environment);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            DataSourceBuilder<?> builder = DataSourceBuilder.create()
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username)
+                    .password(password);
+            HikariDataSource replica = pool(builder, "replica-" + (replicas.size() + 1), environment);
+            replica.setReadOnly(true);
+            // Fail over to the primary quickly instead of queueing behind a dead replica
+            replica.setConnectionTimeout(connectionTimeoutMs);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, maxLagSeconds, readYourWritesSeconds);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    /**
+     * Hibernate holds a connection for the whole session by default, and with open-in-view
+     * a session spans the request; release it after each transaction so every transaction
+     * is routed on its own.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return hibernateProperties -> hibernateProperties.put(
+                AvailableSettings.CONNECTION_HANDLING, "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    // Every pool takes the spring.datasource.hikari.* settings
+    private static HikariDataSource pool(DataSourceBuilder<?> builder, String name, Environment environment) {
+        HikariDataSource pool = builder.type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        return pool;
+    }
+}
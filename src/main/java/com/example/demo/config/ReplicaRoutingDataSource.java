@@ -0,0 +1,186 @@
+package com.example.demo.config;
+
+import com.example.demo.GroceryApplication;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions declared by application services to a replica pool and
+ * everything else to the primary. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the choice
+ * is made after the transaction's read-only flag is known.
+ * <p>
+ * Falls back to the primary when:
+ * <ul>
+ *   <li>the transaction is read-write, or is a Spring Data default read-only transaction
+ *       (in-memory views reload through those right after a commit and must see it);</li>
+ *   <li>the current user committed a write within the read-your-writes window;</li>
+ *   <li>no replica is healthy: one is taken out of rotation when a connection fails or its
+ *       replication lag exceeds the limit, and returns once a probe finds it caught up.</li>
+ * </ul>
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final String APPLICATION_PACKAGE = GroceryApplication.class.getPackageName() + ".";
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagSeconds;
+    private final long readYourWritesNanos;
+
+    private final AtomicInteger next = new AtomicInteger();
+    // Username -> System.nanoTime() of the commit of their last read-write transaction
+    private final Map<String, Long> recentWriters = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    long maxLagSeconds, long readYourWritesSeconds) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagSeconds = maxLagSeconds;
+        this.readYourWritesNanos = readYourWritesSeconds * 1_000_000_000L;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!routeToReplica()) {
+            return primary.getConnection();
+        }
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.pool.getConnection();
+            } catch (SQLException e) {
+                replica.markDown("connection failed: " + e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pools are configured with fixed credentials");
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.check-interval-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection()) {
+                Long lag = replicationLag(connection);
+                if (lag == null) {
+                    replica.markDown("replication is not running");
+                } else if (lag > maxLagSeconds) {
+                    replica.markDown("lagging " + lag + "s behind the primary");
+                } else {
+                    replica.markUp();
+                }
+            } catch (SQLException e) {
+                replica.markDown("connection failed: " + e.getMessage());
+            }
+        }
+        long now = System.nanoTime();
+        recentWriters.values().removeIf(writtenAt -> now - writtenAt > readYourWritesNanos);
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+        primary.close();
+    }
+
+    private boolean routeToReplica() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                // The window starts when the write becomes visible, however long the transaction ran
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recentWriters.put(user, System.nanoTime());
+                    }
+                });
+            }
+            return false;
+        }
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        if (name == null || !name.startsWith(APPLICATION_PACKAGE)) {
+            return false;
+        }
+        Long writtenAt = user != null ? recentWriters.get(user) : null;
+        return writtenAt == null || System.nanoTime() - writtenAt > readYourWritesNanos;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+
+    /**
+     * Seconds behind the source, or null when replication is stopped. A server that does not
+     * report replica status (not permitted, or a managed read endpoint) counts as current.
+     */
+    private static Long replicationLag(Connection connection) throws SQLException {
+        for (String[] query : new String[][]{
+                {"SHOW REPLICA STATUS", "Seconds_Behind_Source"},
+                {"SHOW SLAVE STATUS", "Seconds_Behind_Master"}}) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(query[0])) {
+                if (!rs.next()) {
+                    return 0L;
+                }
+                long lag = rs.getLong(query[1]);
+                return rs.wasNull() ? null : lag;
+            } catch (SQLException e) {
+                if (!connection.isValid(1)) {
+                    throw e;
+                }
+            }
+        }
+        return 0L;
+    }
+
+    private static final class Replica {
+        final HikariDataSource pool;
+        volatile boolean healthy = true;
+
+        Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        void markDown(String reason) {
+            if (healthy) {
+                healthy = false;
+                log.warn("Replica {} taken out of rotation: {}", pool.getPoolName(), reason);
+            }
+        }
+
+        void markUp() {
+            if (!healthy) {
+                healthy = true;
+                log.info("Replica {} back in rotation", pool.getPoolName());
+            }
+        }
+    }
+}
@@ -1,18 +1,32 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.AdminProductRequest;
+import com.example.demo.dto.CatalogFormat;
+import com.example.demo.dto.ProductBulkUpdate;
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.dto.ProductDetailDTO;
 import com.example.demo.entity.*;
 import com.example.demo.service.OrderService;
+import com.example.demo.service.ProductBulkUpdateService;
+import com.example.demo.service.ProductExportService;
+import com.example.demo.service.ProductCache;
+import com.example.demo.service.ProductSearchIndex;
 import com.example.demo.service.ProductService;
+import com.example.demo.service.ReferenceCache;
+import com.example.demo.service.UserService;
 import com.example.demo.service.VendorService;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +43,12 @@ public class AdminController {
     private final UserRepository userRepository;
     private final VendorService vendorService;
     private final CategoryRepository categoryRepository;
+    private final ProductCache productCache;
+    private final ReferenceCache referenceCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductBulkUpdateService productBulkUpdateService;
+    private final ProductExportService productExportService;
+    private final UserService userService;
 
     // Dashboard Statistics
     @GetMapping("/dashboard/stats")
@@ -37,7 +57,7 @@ public class AdminController {
 
         stats.put("totalRevenue", orderService.getTotalRevenue());
         stats.put("totalOrders", orderService.getAllOrders().size());
-        stats.put("totalProducts", productService.getAllProducts().size());
+        stats.put("totalProducts", productService.countProducts());
         stats.put("totalUsers", userRepository.count());
 
         List<Order> pendingOrders = orderService.getOrdersByStatus(OrderStatus.PENDING);
@@ -134,8 +154,13 @@ public class AdminController {
 
     // User Management
     @GetMapping("/users")
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public ResponseEntity<?> getAllUsers(@RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(userService.listUsers(cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     // User statistics endpoint - MUST come before /users/{id}
@@ -156,15 +181,15 @@ public class AdminController {
 
     // Search users - MUST come before /users/{id}
     @GetMapping("/users/search")
-    public ResponseEntity<?> searchUsers(@RequestParam String query) {
-        List<User> users = userRepository.findAll().stream()
-                .filter(user ->
-                        user.getEmail().toLowerCase().contains(query.toLowerCase()) ||
-                                user.getUsername().toLowerCase().contains(query.toLowerCase())
-                )
-                .toList();
-
-        return ResponseEntity.ok(users);
+    public ResponseEntity<?> searchUsers(@RequestParam String query,
+                                         @RequestParam(defaultValue = "prefix") String match,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(userService.searchUsers(query, "contains".equalsIgnoreCase(match), cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     // Get user by email - MUST come before /users/{id}
@@ -346,21 +371,21 @@ public class AdminController {
     // ==================== PRODUCT MANAGEMENT ====================
 
     @GetMapping("/products")
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
+    public ResponseEntity<List<ProductCardDTO>> getAllProducts() {
+        List<ProductCardDTO> products = productService.getAllProductCards();
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("/products/by-source")
     public ResponseEntity<?> getProductsBySource() {
-        List<Product> allProducts = productService.getAllProducts();
+        List<ProductCardDTO> allProducts = productService.getAllProductCards();
 
-        List<Product> adminProducts = allProducts.stream()
-                .filter(p -> p.getVendor() == null)
+        List<ProductCardDTO> adminProducts = allProducts.stream()
+                .filter(p -> p.getVendorId() == null)
                 .toList();
 
-        List<Product> vendorProducts = allProducts.stream()
-                .filter(p -> p.getVendor() != null)
+        List<ProductCardDTO> vendorProducts = allProducts.stream()
+                .filter(p -> p.getVendorId() != null)
                 .toList();
 
         Map<String, Object> response = new HashMap<>();
@@ -373,13 +398,25 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
 
+    // Full catalog download; streamed row by row so it starts immediately and uses constant memory
+    @GetMapping("/products/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format) {
+        CatalogFormat catalogFormat = CatalogFormat.fromParam(format);
+        String filename = "products-" + LocalDate.now() + "." + catalogFormat.getExtension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(catalogFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(output -> productExportService.exportProducts(catalogFormat, output));
+    }
+
     @GetMapping("/products/{id}")
     public ResponseEntity<?> getProductById(@PathVariable Long id) {
         try {
             Product product = productService.getProductById(id);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("product", product);
+            response.put("product", ProductDetailDTO.from(product));
             response.put("source", product.getVendor() != null ? "VENDOR" : "ADMIN");
             if (product.getVendor() != null) {
                 response.put("vendorInfo", Map.of(
@@ -430,7 +467,7 @@ public class AdminController {
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Product created successfully",
-                    "product", created
+                    "product", ProductDetailDTO.from(created)
             ));
         } catch (Exception e) {
             e.printStackTrace();
@@ -443,6 +480,16 @@ public class AdminController {
         }
     }
 
+    // Bulk price/stock/availability update for any products
+    @PutMapping("/products/bulk")
+    public ResponseEntity<?> bulkUpdateProducts(@RequestBody List<ProductBulkUpdate> updates) {
+        try {
+            return ResponseEntity.ok(productBulkUpdateService.updateProducts(null, updates));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PutMapping("/products/{id}")
     public ResponseEntity<?> updateProduct(
             @PathVariable Long id,
@@ -452,7 +499,7 @@ public class AdminController {
             return ResponseEntity.ok(Map.of(
                     "success", true,
                     "message", "Product updated successfully",
-                    "product", updated
+                    "product", ProductDetailDTO.from(updated)
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -472,6 +519,61 @@ public class AdminController {
         }
     }
 
+    // Product cache counters, used to size product.cache.max-size / ttl-seconds
+    @GetMapping("/cache/products")
+    public ResponseEntity<Map<String, Object>> getProductCacheStats() {
+        return ResponseEntity.ok(productCache.stats());
+    }
+
+    @DeleteMapping("/cache/products")
+    public ResponseEntity<?> clearProductCache() {
+        productCache.clear();
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Product cache cleared"
+        ));
+    }
+
+    // Second-level cache regions for users, vendors and categories
+    @GetMapping("/cache/reference")
+    public ResponseEntity<Map<String, Object>> getReferenceCacheStats() {
+        return ResponseEntity.ok(referenceCache.stats());
+    }
+
+    @DeleteMapping("/cache/reference")
+    public ResponseEntity<?> clearReferenceCache() {
+        referenceCache.clear();
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Reference cache cleared"
+        ));
+    }
+
+    // Cached search result pages (ids), dropped selectively on product writes
+    @GetMapping("/cache/search")
+    public ResponseEntity<Map<String, Object>> getSearchCacheStats() {
+        return ResponseEntity.ok(productSearchIndex.cacheStats());
+    }
+
+    @DeleteMapping("/cache/search")
+    public ResponseEntity<?> clearSearchCache() {
+        productSearchIndex.clearCache();
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Search cache cleared"
+        ));
+    }
+
+    // Rebuilds the full-text index in the background; searches use the current one until it is swapped in
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<?> rebuildSearchIndex() {
+        productSearchIndex.requestRebuild();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "success", true,
+                "message", "Search index rebuild started"
+        ));
+    }
+
     // ==================== COMPREHENSIVE STATISTICS ====================
 
     @GetMapping("/stats/comprehensive")
@@ -494,9 +596,8 @@ public class AdminController {
         stats.put("pendingVendors", pendingVendors);
 
         // Product Statistics
-        List<Product> allProducts = productService.getAllProducts();
-        long totalProducts = allProducts.size();
-        long availableProducts = allProducts.stream().filter(Product::getIsAvailable).count();
+        long totalProducts = productService.countProducts();
+        long availableProducts = productService.countAvailableProducts();
         stats.put("totalProducts", totalProducts);
         stats.put("availableProducts", availableProducts);
 
@@ -1,5 +1,7 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CartLineDTO;
+import com.example.demo.dto.CartOperation;
 import com.example.demo.dto.CartSummary;
 import com.example.demo.entity.CartItem;
 import com.example.demo.entity.User;
@@ -12,6 +14,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -28,7 +31,7 @@ public class CartController {
     }
 
     @GetMapping
-    public List<CartItem> getCart() {
+    public List<CartLineDTO> getCart() {
         return cartService.getCartItems(getCurrentUser());
     }
 
@@ -47,29 +50,39 @@ public class CartController {
         return ResponseEntity.ok(cartItem);
     }
 
+    // Ordered add/set/remove operations applied all or none; returns the resulting cart
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyOperations(@RequestBody List<CartOperation> operations) {
+        try {
+            return ResponseEntity.ok(cartService.applyOperations(getCurrentUser(), operations));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateQuantity(
             @PathVariable Long id,
             @RequestBody CartRequest request) {
-        CartItem cartItem = cartService.updateCartItemQuantity(id, request.getQuantity());
+        CartItem cartItem = cartService.updateCartItemQuantity(getCurrentUser(), id, request.getQuantity());
         return ResponseEntity.ok(cartItem);
     }
 
     @PutMapping("/{id}/increment")
     public ResponseEntity<?> incrementQuantity(@PathVariable Long id) {
-        CartItem cartItem = cartService.incrementQuantity(id);
+        CartItem cartItem = cartService.incrementQuantity(getCurrentUser(), id);
         return ResponseEntity.ok(cartItem);
     }
 
     @PutMapping("/{id}/decrement")
     public ResponseEntity<?> decrementQuantity(@PathVariable Long id) {
-        CartItem cartItem = cartService.decrementQuantity(id);
+        CartItem cartItem = cartService.decrementQuantity(getCurrentUser(), id);
         return ResponseEntity.ok(cartItem);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<?> removeFromCart(@PathVariable Long id) {
-        cartService.removeFromCart(id);
+        cartService.removeFromCart(getCurrentUser(), id);
         return ResponseEntity.ok().build();
     }
 
@@ -0,0 +1,35 @@
+package com.example.demo.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET helper: answers 304 Not Modified from the validators alone and only
+ * builds the body when the client's copy is stale. Clients must revalidate every time
+ * (no-cache), which keeps responses correct without any max-age guesswork.
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    static <T> ResponseEntity<T> respond(WebRequest request, String eTag, long lastModified, Supplier<T> body) {
+        if (request.checkNotModified(eTag, lastModified)) {
+            return null; // status 304 and validators are already set on the response
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .body(body.get());
+    }
+
+    static long toEpochMillis(LocalDateTime time) {
+        return time == null ? -1 : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
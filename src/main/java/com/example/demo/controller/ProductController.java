@@ -1,13 +1,26 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FacetFilter;
+import com.example.demo.dto.FacetedProductPage;
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.dto.ProductDetailDTO;
+import com.example.demo.dto.ProductFilter;
+import com.example.demo.dto.ProductSearchPage;
+import com.example.demo.dto.ProductSort;
+import com.example.demo.dto.SearchSuggestion;
 import com.example.demo.entity.Product;
+import com.example.demo.service.CatalogVersion;
 import com.example.demo.service.ProductService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/products")
@@ -15,69 +28,154 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final CatalogVersion catalogVersion;
 
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productService.getAllProducts();
+    public ResponseEntity<CursorPage<ProductCardDTO>> getAllProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            WebRequest request) {
+        return listProducts(request, new ProductFilter(), sort, direction, cursor, limit);
     }
 
     @GetMapping("/available")
-    public List<Product> getAvailableProducts() {
-        return productService.getAvailableProducts();
+    public ResponseEntity<CursorPage<ProductCardDTO>> getAvailableProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            WebRequest request) {
+        ProductFilter filter = ProductFilter.builder().availableOnly(true).build();
+        return listProducts(request, filter, sort, direction, cursor, limit);
     }
 
     @GetMapping("/featured")
-    public List<Product> getFeaturedProducts() {
-        return productService.getFeaturedProducts();
+    public ResponseEntity<List<ProductCardDTO>> getFeaturedProducts(WebRequest request) {
+        return catalogResponse(request, productService::getFeaturedProducts);
     }
 
     @GetMapping("/top-rated")
-    public List<Product> getTopRatedProducts() {
-        return productService.getTopRatedProducts();
+    public ResponseEntity<List<ProductCardDTO>> getTopRatedProducts(WebRequest request) {
+        return catalogResponse(request, productService::getTopRatedProducts);
     }
 
     @GetMapping("/new")
-    public List<Product> getNewProducts() {
-        return productService.getNewProducts();
+    public ResponseEntity<List<ProductCardDTO>> getNewProducts(WebRequest request) {
+        return catalogResponse(request, productService::getNewProducts);
+    }
+
+    // Ranked by recent product page views; changes without a catalog write, so no validator
+    @GetMapping("/trending")
+    public List<ProductCardDTO> getTrendingProducts(@RequestParam(defaultValue = "10") int limit) {
+        return productService.getTrendingProducts(limit);
     }
 
     @GetMapping("/{id}")
-    public Product getProduct(@PathVariable Long id) {
-        return productService.getProductById(id);
+    public ResponseEntity<ProductDetailDTO> getProduct(@PathVariable Long id, WebRequest request) {
+        Product product = productService.getProductById(id);
+        long productModified = ConditionalGet.toEpochMillis(product.getUpdatedAt());
+        long vendorModified = product.getVendor() != null
+                ? ConditionalGet.toEpochMillis(product.getVendor().getUpdatedAt())
+                : -1;
+        long categoryModified = product.getCategory() != null
+                ? ConditionalGet.toEpochMillis(product.getCategory().getUpdatedAt())
+                : -1;
+        // Strong validator: the detail body is fully determined by the product, vendor and category rows
+        String eTag = "\"p" + id + "-" + productModified + "-" + vendorModified + "-" + categoryModified + "\"";
+        ResponseEntity<ProductDetailDTO> response = ConditionalGet.respond(request, eTag,
+                Math.max(productModified, Math.max(vendorModified, categoryModified)),
+                () -> ProductDetailDTO.from(product));
+        // A revalidation answered with 304 is the same client's repeat visit, not a new view
+        if (response != null) {
+            productService.recordView(id);
+        }
+        return response;
     }
 
     @GetMapping("/search")
-    public List<Product> searchProducts(@RequestParam String keyword) {
-        return productService.searchProducts(keyword);
+    public ResponseEntity<ProductSearchPage> searchProducts(@RequestParam String keyword,
+                                                            @RequestParam(defaultValue = "0") int offset,
+                                                            @RequestParam(defaultValue = "20") int limit,
+                                                            WebRequest request) {
+        return searchResponse(request, () -> productService.searchProducts(keyword, offset, limit));
+    }
+
+    // Search-box autocomplete: product names, brands and categories matching the typed prefix
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SearchSuggestion>> suggest(@RequestParam String prefix,
+                                                          @RequestParam(defaultValue = "8") int limit,
+                                                          WebRequest request) {
+        return catalogResponse(request, () -> productService.suggest(prefix, limit));
     }
 
     @GetMapping("/category/{categoryId}")
-    public List<Product> getProductsByCategory(@PathVariable Long categoryId) {
-        return productService.getProductsByCategory(categoryId);
+    public ResponseEntity<CursorPage<ProductCardDTO>> getProductsByCategory(
+            @PathVariable Long categoryId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "createdAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            WebRequest request) {
+        ProductFilter filter = ProductFilter.builder().categoryId(categoryId).build();
+        return listProducts(request, filter, sort, direction, cursor, limit);
     }
 
     @GetMapping("/filter")
-    public List<Product> filterProducts(
+    public ResponseEntity<CursorPage<ProductCardDTO>> filterProducts(
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false, defaultValue = "0") Double minPrice,
-            @RequestParam(required = false, defaultValue = "10000") Double maxPrice) {
-        if (categoryId != null) {
-            return productService.filterProducts(categoryId, minPrice, maxPrice);
-        } else {
-            return productService.getProductsByPriceRange(minPrice, maxPrice);
-        }
+            @RequestParam(required = false, defaultValue = "10000") Double maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "price") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            WebRequest request) {
+        ProductFilter filter = ProductFilter.builder()
+                .categoryId(categoryId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .availableOnly(categoryId != null)
+                .build();
+        return listProducts(request, filter, sort, direction, cursor, limit);
+    }
+
+    // Any combination of facets; values within a facet are OR-ed, facets are AND-ed
+    @GetMapping("/facets")
+    public ResponseEntity<FacetedProductPage> facetProducts(
+            @RequestParam(required = false) List<Long> categoryId,
+            @RequestParam(required = false) List<String> brand,
+            @RequestParam(required = false) List<Long> vendorId,
+            @RequestParam(required = false) List<String> price,
+            @RequestParam(required = false) Integer minRating,
+            @RequestParam(defaultValue = "false") boolean available,
+            @RequestParam(defaultValue = "false") boolean discounted,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "20") int limit,
+            WebRequest request) {
+        FacetFilter filter = FacetFilter.builder()
+                .categoryIds(categoryId)
+                .brands(brand)
+                .vendorIds(vendorId)
+                .priceRanges(price)
+                .minRating(minRating)
+                .availableOnly(available)
+                .discountedOnly(discounted)
+                .build();
+        return catalogResponse(request, () -> productService.searchFacets(filter, offset, limit));
     }
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public Product createProduct(@RequestBody Product product) {
-        return productService.createProduct(product);
+    public ProductDetailDTO createProduct(@RequestBody Product product) {
+        return ProductDetailDTO.from(productService.createProduct(product));
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public Product updateProduct(@PathVariable Long id, @RequestBody Product product) {
-        return productService.updateProduct(id, product);
+    public ProductDetailDTO updateProduct(@PathVariable Long id, @RequestBody Product product) {
+        return ProductDetailDTO.from(productService.updateProduct(id, product));
     }
 
     @DeleteMapping("/{id}")
@@ -86,4 +184,25 @@ public class ProductController {
         productService.deleteProduct(id);
         return ResponseEntity.ok().build();
     }
+
+    private ResponseEntity<CursorPage<ProductCardDTO>> listProducts(WebRequest request, ProductFilter filter,
+                                                                    String sort, String direction,
+                                                                    String cursor, int limit) {
+        ProductSort productSort = ProductSort.fromParam(sort);
+        Sort.Direction sortDirection = Sort.Direction.fromString(direction);
+        return catalogResponse(request,
+                () -> productService.listProducts(filter, productSort, sortDirection, cursor, limit));
+    }
+
+    // List responses are validated against the catalog-wide version
+    private <T> ResponseEntity<T> catalogResponse(WebRequest request, Supplier<T> body) {
+        return ConditionalGet.respond(request, catalogVersion.eTag(), catalogVersion.getLastModified(), body);
+    }
+
+    // Search results also move when the index is (re)built or the ranking boosts are refreshed
+    private <T> ResponseEntity<T> searchResponse(WebRequest request, Supplier<T> body) {
+        long searchChanged = productService.getSearchLastChanged();
+        return ConditionalGet.respond(request, catalogVersion.eTag(searchChanged),
+                Math.max(catalogVersion.getLastModified(), searchChanged), body);
+    }
 }
@@ -3,6 +3,7 @@ package com.example.demo.controller;
 import com.example.demo.dto.VendorRegistrationRequest;
 import com.example.demo.dto.VendorUpdateRequest;
 import com.example.demo.entity.Vendor;
+import com.example.demo.service.ImageStore;
 import com.example.demo.service.VendorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,8 +13,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +32,9 @@ public class VendorController {
     @Autowired
     private VendorService vendorService;
 
+    @Autowired
+    private ImageStore imageStore;
+
     // Register as vendor (authenticated user) - supports both JSON and multipart
     @PostMapping("/register")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
@@ -73,12 +80,14 @@ public class VendorController {
                 ));
             }
 
-            // Log file uploads if present
+            // Uploaded files take precedence over URLs
             if (logo != null && !logo.isEmpty()) {
                 logger.info("Logo file uploaded: {} ({})", logo.getOriginalFilename(), logo.getSize());
+                logoUrl = storeImage(logo);
             }
             if (banner != null && !banner.isEmpty()) {
                 logger.info("Banner file uploaded: {} ({})", banner.getOriginalFilename(), banner.getSize());
+                bannerUrl = storeImage(banner);
             }
 
             Vendor vendor = new Vendor();
@@ -165,10 +174,11 @@ public class VendorController {
 
     // Get vendor by ID (public)
     @GetMapping("/{id}")
-    public ResponseEntity<?> getVendorById(@PathVariable Long id) {
+    public ResponseEntity<?> getVendorById(@PathVariable Long id, WebRequest request) {
         try {
             Vendor vendor = vendorService.getVendorById(id);
-            return ResponseEntity.ok(vendor);
+            long modified = ConditionalGet.toEpochMillis(vendor.getUpdatedAt());
+            return ConditionalGet.respond(request, "W/\"v" + id + "-" + modified + "\"", modified, () -> vendor);
         } catch (Exception e) {
             logger.error("Error fetching vendor by ID: {}", id, e);
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -197,4 +207,10 @@ public class VendorController {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
+
+    private String storeImage(MultipartFile file) throws IOException {
+        try (InputStream input = file.getInputStream()) {
+            return imageStore.store(input).getUrl();
+        }
+    }
 }
@@ -1,20 +1,36 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CatalogFormat;
+import com.example.demo.dto.ProductBulkUpdate;
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.dto.ProductDetailDTO;
+import com.example.demo.dto.ProductImportResult;
 import com.example.demo.entity.Product;
+import com.example.demo.service.ImageStore;
+import com.example.demo.service.ProductBulkUpdateService;
+import com.example.demo.service.ProductImportService;
 import com.example.demo.service.ProductService;
 import com.example.demo.service.VendorService;
 import com.example.demo.entity.Vendor;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 @RestController
+@Slf4j
 @RequestMapping("/api/vendor/products")
 @CrossOrigin(origins = "*")
 @PreAuthorize("hasRole('VENDOR')")
@@ -26,12 +42,21 @@ public class VendorProductController {
     @Autowired
     private VendorService vendorService;
 
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductBulkUpdateService productBulkUpdateService;
+
+    @Autowired
+    private ImageStore imageStore;
+
     // Get my products
     @GetMapping
     public ResponseEntity<?> getMyProducts(Authentication authentication) {
         try {
             Vendor vendor = vendorService.getVendorByEmail(authentication.getName());
-            List<Product> products = productService.getProductsByVendor(vendor.getId());
+            List<ProductCardDTO> products = productService.getProductsByVendor(vendor.getId());
             return ResponseEntity.ok(products);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -50,13 +75,59 @@ public class VendorProductController {
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "message", "Product added successfully",
-                "product", created
+                "product", ProductDetailDTO.from(created)
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
+    // Bulk import products from an uploaded CSV or NDJSON file
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> importProductFile(
+            @RequestParam("file") MultipartFile file,
+            Authentication authentication) {
+        try (InputStream input = file.getInputStream()) {
+            Vendor vendor = vendorService.getVendorByEmail(authentication.getName());
+            CatalogFormat format =
+                    CatalogFormat.fromContentType(file.getContentType(), file.getOriginalFilename());
+            ProductImportResult result = productImportService.importProducts(vendor.getId(), input, format);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Bulk import products streamed as the raw request body
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importProductStream(
+            HttpServletRequest request,
+            Authentication authentication) {
+        try {
+            Vendor vendor = vendorService.getVendorByEmail(authentication.getName());
+            CatalogFormat format =
+                    CatalogFormat.fromContentType(request.getContentType(), null);
+            ProductImportResult result =
+                    productImportService.importProducts(vendor.getId(), request.getInputStream(), format);
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Bulk update price, stock and availability of my products
+    @PutMapping("/bulk")
+    public ResponseEntity<?> bulkUpdateProducts(
+            @RequestBody List<ProductBulkUpdate> updates,
+            Authentication authentication) {
+        try {
+            Vendor vendor = vendorService.getVendorByEmail(authentication.getName());
+            return ResponseEntity.ok(productBulkUpdateService.updateProducts(vendor.getId(), updates));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // Update my product
     @PutMapping("/{productId}")
     public ResponseEntity<?> updateProduct(
@@ -70,8 +141,34 @@ public class VendorProductController {
             return ResponseEntity.ok(Map.of(
                 "success", true,
                 "message", "Product updated successfully",
-                "product", updated
+                "product", ProductDetailDTO.from(updated)
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Upload the image of my product; it is stored locally and replaces imageUrl
+    @PostMapping(value = "/{productId}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadProductImage(
+            @PathVariable Long productId,
+            @RequestParam("file") MultipartFile file,
+            Authentication authentication) {
+        try (InputStream input = file.getInputStream()) {
+            Vendor vendor = vendorService.getVendorByEmail(authentication.getName());
+            productService.checkVendorOwnsProduct(vendor.getId(), productId);
+            String imageUrl = imageStore.store(input).getUrl();
+            Product updated = productService.updateProductImageForVendor(vendor.getId(), productId, imageUrl);
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Product image updated successfully",
+                "product", ProductDetailDTO.from(updated)
             ));
+        } catch (IOException e) {
+            // The message may name server paths
+            log.warn("Product image upload failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Could not store the image"));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -100,10 +197,10 @@ public class VendorProductController {
     public ResponseEntity<?> getProductStats(Authentication authentication) {
         try {
             Vendor vendor = vendorService.getVendorByEmail(authentication.getName());
-            List<Product> products = productService.getProductsByVendor(vendor.getId());
+            List<ProductCardDTO> products = productService.getProductsByVendor(vendor.getId());
 
             long totalProducts = products.size();
-            long availableProducts = products.stream().filter(Product::getIsAvailable).count();
+            long availableProducts = products.stream().filter(ProductCardDTO::getIsAvailable).count();
             long outOfStock = products.stream().filter(p -> p.getStock() == 0).count();
 
             Map<String, Object> stats = new HashMap<>();
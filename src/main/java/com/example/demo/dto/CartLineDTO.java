@@ -0,0 +1,15 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A cart line as shown on the cart page; the product is its list-view card
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartLineDTO {
+    private Long id;
+    private ProductCardDTO product;
+    private Integer quantity;
+}
@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One step of a batch cart update: "add" (productId, quantity), "set" (cartItemId, quantity)
+// or "remove" (cartItemId)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartOperation {
+    private String op;
+    private Long productId;
+    private Long cartItemId;
+    private Integer quantity;
+}
@@ -0,0 +1,42 @@
+package com.example.demo.dto;
+
+import java.util.Locale;
+
+// Wire formats for bulk catalog import and export
+public enum CatalogFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    CatalogFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static CatalogFormat fromContentType(String contentType, String filename) {
+        if ((contentType != null && contentType.contains("ndjson"))
+                || (filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".ndjson"))) {
+            return NDJSON;
+        }
+        return CSV;
+    }
+
+    public static CatalogFormat fromParam(String value) {
+        for (CatalogFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown format: " + value);
+    }
+}
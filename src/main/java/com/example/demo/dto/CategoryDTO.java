@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.Category;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryDTO {
+    private Long id;
+    private String name;
+    private String description;
+    private String imageUrl;
+    // Number of available products in this category
+    private long productCount;
+
+    public static CategoryDTO from(Category category, long productCount) {
+        return new CategoryDTO(category.getId(), category.getName(), category.getDescription(),
+                category.getImageUrl(), productCount);
+    }
+}
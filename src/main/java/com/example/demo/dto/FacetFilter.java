@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Facet selection for {@code /api/products/facets}. Values inside one facet are OR-ed,
+ * different facets are AND-ed. Empty or null lists leave that facet unrestricted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetFilter {
+    private List<Long> categoryIds;
+    private List<String> brands;
+    private List<Long> vendorIds;
+    private List<String> priceRanges;
+    private Integer minRating;
+    private boolean availableOnly;
+    private boolean discountedOnly;
+}
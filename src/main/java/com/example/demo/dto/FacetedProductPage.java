@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedProductPage {
+    private List<ProductCardDTO> items;
+    private int total;
+    private int offset;
+    // facet name -> value -> number of matching products, highest count first
+    private Map<String, Map<String, Integer>> facets;
+}
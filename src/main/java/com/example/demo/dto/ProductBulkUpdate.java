@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One row of a bulk price/stock update; null fields are left unchanged
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkUpdate {
+    private Long productId;
+    private Double price;
+    private Integer stock;
+    private Boolean isAvailable;
+}
@@ -0,0 +1,31 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ProductBulkUpdateResult {
+
+    private int requested;
+    private int updated;
+    private int failed;
+    private List<ItemError> errors = new ArrayList<>();
+
+    public void addError(Long productId, String message) {
+        failed++;
+        errors.add(new ItemError(productId, message));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemError {
+        private Long productId;
+        private String message;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model for product list views. Built directly by JPQL constructor
+ * expressions, so field order here is the constructor argument order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCardDTO {
+    private Long id;
+    private String name;
+    private String imageUrl;
+    private String brand;
+    private String unit;
+    private Double price;
+    private Double discount;
+    private Integer stock;
+    private Boolean isAvailable;
+    private Boolean isFeatured;
+    private Double averageRating;
+    private Integer reviewCount;
+    private Long categoryId;
+    private String categoryName;
+    private Long vendorId;
+    private String vendorStoreName;
+    private LocalDateTime createdAt;
+
+    public static ProductCardDTO from(Product product) {
+        return new ProductCardDTO(
+                product.getId(),
+                product.getName(),
+                product.getImageUrl(),
+                product.getBrand(),
+                product.getUnit(),
+                product.getPrice(),
+                product.getDiscount(),
+                product.getStock(),
+                product.getIsAvailable(),
+                product.getIsFeatured(),
+                product.getAverageRating(),
+                product.getReviewCount(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getCategory() != null ? product.getCategory().getName() : null,
+                product.getVendor() != null ? product.getVendor().getId() : null,
+                product.getVendor() != null ? product.getVendor().getStoreName() : null,
+                product.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.dto;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position: the sort key value and id of the last row of a page.
+ * The sort and direction are encoded too, so a cursor cannot be replayed against
+ * a different ordering.
+ */
+public class ProductCursor {
+
+    private final ProductSort sort;
+    private final Sort.Direction direction;
+    private final Comparable<?> value;
+    private final Long id;
+
+    private ProductCursor(ProductSort sort, Sort.Direction direction, Comparable<?> value, Long id) {
+        this.sort = sort;
+        this.direction = direction;
+        this.value = value;
+        this.id = id;
+    }
+
+    public static ProductCursor after(ProductCardDTO last, ProductSort sort, Sort.Direction direction) {
+        return new ProductCursor(sort, direction, sort.valueOf(last), last.getId());
+    }
+
+    public ProductSort getSort() {
+        return sort;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public Comparable<?> getValue() {
+        return value;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = sort.name() + "|" + direction.name() + "|" + id + "|"
+                + (value == null ? "" : "=" + value);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token, ProductSort sort, Sort.Direction direction) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4
+                    || ProductSort.valueOf(parts[0]) != sort
+                    || Sort.Direction.valueOf(parts[1]) != direction) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+            Long id = Long.valueOf(parts[2]);
+            Comparable<?> value = parts[3].isEmpty() ? null : parseValue(sort, parts[3].substring(1));
+            return new ProductCursor(sort, direction, value, id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage());
+        }
+    }
+
+    private static Comparable<?> parseValue(ProductSort sort, String value) {
+        return switch (sort) {
+            case PRICE, AVERAGE_RATING -> Double.valueOf(value);
+            case CREATED_AT -> LocalDateTime.parse(value);
+            case NAME -> value;
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model for the product page. Category and vendor are flattened to the
+ * few fields the page shows instead of serializing the associated entities.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductDetailDTO {
+    private Long id;
+    private String name;
+    private String description;
+    private String imageUrl;
+    private String brand;
+    private String unit;
+    private Double weight;
+    private Double price;
+    private Double discount;
+    private Integer stock;
+    private Boolean isAvailable;
+    private Boolean isFeatured;
+    private Double averageRating;
+    private Integer reviewCount;
+    private Long categoryId;
+    private String categoryName;
+    private Long vendorId;
+    private String vendorStoreName;
+    private Boolean vendorVerified;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public static ProductDetailDTO from(Product product) {
+        ProductDetailDTO dto = new ProductDetailDTO();
+        dto.setId(product.getId());
+        dto.setName(product.getName());
+        dto.setDescription(product.getDescription());
+        dto.setImageUrl(product.getImageUrl());
+        dto.setBrand(product.getBrand());
+        dto.setUnit(product.getUnit());
+        dto.setWeight(product.getWeight());
+        dto.setPrice(product.getPrice());
+        dto.setDiscount(product.getDiscount());
+        dto.setStock(product.getStock());
+        dto.setIsAvailable(product.getIsAvailable());
+        dto.setIsFeatured(product.getIsFeatured());
+        dto.setAverageRating(product.getAverageRating());
+        dto.setReviewCount(product.getReviewCount());
+        if (product.getCategory() != null) {
+            dto.setCategoryId(product.getCategory().getId());
+            dto.setCategoryName(product.getCategory().getName());
+        }
+        if (product.getVendor() != null) {
+            dto.setVendorId(product.getVendor().getId());
+            dto.setVendorStoreName(product.getVendor().getStoreName());
+            dto.setVendorVerified(product.getVendor().getIsVerified());
+        }
+        dto.setCreatedAt(product.getCreatedAt());
+        dto.setUpdatedAt(product.getUpdatedAt());
+        return dto;
+    }
+}
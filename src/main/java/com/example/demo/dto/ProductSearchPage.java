@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchPage {
+    // Best match first
+    private List<ProductCardDTO> items;
+    private long total;
+    private int offset;
+    // Set when a word was not found in the catalog and its closest spelling was searched instead
+    private String didYouMean;
+}
@@ -0,0 +1,41 @@
+package com.example.demo.dto;
+
+/**
+ * Stable sort keys for product listings. Every key is paired with the product id
+ * as a tie-breaker so that keyset pagination never skips or repeats a row.
+ */
+public enum ProductSort {
+    PRICE("price"),
+    AVERAGE_RATING("averageRating"),
+    CREATED_AT("createdAt"),
+    NAME("name");
+
+    private final String property;
+
+    ProductSort(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Comparable<?> valueOf(ProductCardDTO product) {
+        return switch (this) {
+            case PRICE -> product.getPrice();
+            case AVERAGE_RATING -> product.getAverageRating();
+            case CREATED_AT -> product.getCreatedAt();
+            case NAME -> product.getName();
+        };
+    }
+
+    public static ProductSort fromParam(String value) {
+        for (ProductSort sort : values()) {
+            if (sort.property.equalsIgnoreCase(value) || sort.name().equalsIgnoreCase(value)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort key: " + value
+                + ". Use one of price, averageRating, createdAt, name");
+    }
+}
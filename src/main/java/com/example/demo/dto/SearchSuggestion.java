@@ -0,0 +1,22 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchSuggestion {
+
+    public enum Type {
+        PRODUCT,
+        BRAND,
+        CATEGORY
+    }
+
+    private String text;
+    private Type type;
+    // Product id for PRODUCT, category id for CATEGORY, null for BRAND
+    private Long id;
+}
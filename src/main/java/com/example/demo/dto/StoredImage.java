@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredImage {
+
+    // Content hash plus extension, e.g. "3f2a...c9.jpg"
+    private String name;
+    private String contentType;
+    private long size;
+    private String url;
+    // False when identical bytes were already stored
+    private boolean created;
+}
@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.UserRole;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read model for admin user lists. Built directly by JPQL constructor
+ * expressions, so field order here is the constructor argument order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummaryDTO {
+    private Long id;
+    private String username;
+    private String email;
+    private UserRole role;
+    private String phoneNumber;
+    private Boolean isActive;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastLogin;
+}
@@ -6,7 +6,9 @@ import lombok.Data;
 
 @Entity
 @Data
-@Table(name = "cart_items")
+// One line per product per user; also serves loading a user's cart
+@Table(name = "cart_items", uniqueConstraints = @UniqueConstraint(
+        name = "uk_cart_items_user_product", columnNames = {"user_id", "product_id"}))
 public class CartItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
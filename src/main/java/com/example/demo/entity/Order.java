@@ -8,7 +8,10 @@ import java.util.List;
 
 @Entity
 @Data
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Recent-sales window read by the search ranking job
+        @Index(name = "idx_orders_order_date", columnList = "orderDate")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
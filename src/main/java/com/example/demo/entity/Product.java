@@ -5,12 +5,21 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
 @Data
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        // (sort key, id) indexes backing keyset pagination
+        @Index(name = "idx_products_price_id", columnList = "price, id"),
+        @Index(name = "idx_products_rating_id", columnList = "averageRating, id"),
+        @Index(name = "idx_products_created_id", columnList = "createdAt, id"),
+        @Index(name = "idx_products_name_id", columnList = "name, id"),
+        @Index(name = "idx_products_category_price_id", columnList = "category_id, price, id")
+})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -18,11 +27,14 @@ public class Product {
 
     private String name;
 
+    // Category and vendor are resolved by id from the second-level cache instead of joined
     @ManyToOne
+    @Fetch(FetchMode.SELECT)
     @JoinColumn(name = "category_id")
     private Category category;
 
     @ManyToOne(fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SELECT)
     @JoinColumn(name = "vendor_id")
     @JsonIgnoreProperties({"products", "user"})
     private Vendor vendor;
@@ -0,0 +1,30 @@
+package com.example.demo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when a category or a vendor store is renamed. Product cards show both
+ * names, so in-memory views that copy them relabel their products after commit.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogLabelChangedEvent {
+
+    public enum Kind {
+        CATEGORY,
+        VENDOR
+    }
+
+    private final Kind kind;
+    private final Long id;
+    private final String name;
+
+    public static CatalogLabelChangedEvent category(Long categoryId, String name) {
+        return new CatalogLabelChangedEvent(Kind.CATEGORY, categoryId, name);
+    }
+
+    public static CatalogLabelChangedEvent vendor(Long vendorId, String storeName) {
+        return new CatalogLabelChangedEvent(Kind.VENDOR, vendorId, storeName);
+    }
+}
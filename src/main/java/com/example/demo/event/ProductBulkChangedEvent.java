@@ -0,0 +1,17 @@
+package com.example.demo.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published once per batch by bulk write paths (imports, bulk price/stock updates)
+ * that bypass the entity layer. Listeners reload the listed products instead of
+ * receiving one {@link ProductChangedEvent} per row.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductBulkChangedEvent {
+    private final List<Long> productIds;
+}
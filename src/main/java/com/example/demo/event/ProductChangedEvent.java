@@ -0,0 +1,35 @@
+package com.example.demo.event;
+
+import com.example.demo.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published whenever a product row changes. Listeners that keep derived,
+ * in-memory views of the catalog use it to update themselves after commit.
+ * {@code product} holds the state as written and is {@code null} for deletes.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        STOCK_CHANGED,
+        RATING_CHANGED,
+        DELETED
+    }
+
+    private final Long productId;
+    private final Product product;
+    private final Type type;
+
+    public static ProductChangedEvent of(Product product, Type type) {
+        return new ProductChangedEvent(product.getId(), product, type);
+    }
+
+    public static ProductChangedEvent deleted(Long productId) {
+        return new ProductChangedEvent(productId, null, Type.DELETED);
+    }
+}
@@ -1,13 +1,37 @@
-package com.example.demo.repository;
-
-import com.example.demo.entity.CartItem;
-import com.example.demo.entity.User;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
-import java.util.List;
-
-@Repository
-public interface CartRepository extends JpaRepository<CartItem, Long> {
-    List<CartItem> findByUser(User user);
-    void deleteByUser(User user);
-}
+package com.example.demo.repository;
+
+import com.example.demo.entity.CartItem;
+import com.example.demo.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CartRepository extends JpaRepository<CartItem, Long> {
+    List<CartItem> findByUser(User user);
+    void deleteByUser(User user);
+
+    // (id, product id, quantity) of each of a user's cart lines, without loading the products
+    @Query("SELECT c.id, c.product.id, c.quantity FROM CartItem c WHERE c.user.id = :userId ORDER BY c.id")
+    List<Object[]> findLinesByUserId(@Param("userId") Long userId);
+
+    // (id, product id, quantity) of a user's lines for the given products
+    @Query("SELECT c.id, c.product.id, c.quantity FROM CartItem c WHERE c.user.id = :userId AND c.product.id IN :productIds")
+    List<Object[]> findLinesByUserIdAndProductIds(@Param("userId") Long userId, @Param("productIds") Collection<Long> productIds);
+
+    // Inserts the line, or adds to the quantity of the user's line for the product if there is one.
+    // Declares cart_items as the only table written, so Hibernate does not drop every cache region
+    // The row alias needs MySQL 8.0.19 or later; VALUES() in the update clause is deprecated
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cart_items"))
+    @Query(value = "INSERT INTO cart_items (user_id, product_id, quantity) VALUES (:userId, :productId, :quantity) AS new "
+            + "ON DUPLICATE KEY UPDATE quantity = cart_items.quantity + new.quantity", nativeQuery = true)
+    int upsertLine(@Param("userId") Long userId, @Param("productId") Long productId, @Param("quantity") Integer quantity);
+}
@@ -5,8 +5,10 @@ import com.example.demo.entity.OrderStatus;
 import com.example.demo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,4 +23,10 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.orderStatus != 'CANCELLED'")
     Double calculateTotalRevenue();
+
+    // (productId, units) sold in orders placed since the given time, ignoring the given statuses
+    @Query("SELECT i.product.id, SUM(i.quantity) FROM OrderItem i JOIN i.order o " +
+            "WHERE o.orderDate >= :since AND o.orderStatus NOT IN :excluded GROUP BY i.product.id")
+    List<Object[]> sumUnitsSoldByProductSince(@Param("since") LocalDateTime since,
+                                              @Param("excluded") Collection<OrderStatus> excluded);
 }
@@ -1,37 +1,99 @@
 package com.example.demo.repository;
 
-import com.example.demo.entity.Category;
+import com.example.demo.dto.ProductCardDTO;
 import com.example.demo.entity.Product;
 import com.example.demo.entity.Vendor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    List<Product> findByCategory(Category category);
-    List<Product> findByIsAvailableTrue();
-    List<Product> findByIsFeaturedTrue();
-    List<Product> findByPriceBetween(Double minPrice, Double maxPrice);
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    // List views select only the card columns instead of hydrating Product + Vendor + Category
+    String CARD_SELECT = "SELECT new com.example.demo.dto.ProductCardDTO(" +
+            "p.id, p.name, p.imageUrl, p.brand, p.unit, p.price, p.discount, p.stock, " +
+            "p.isAvailable, p.isFeatured, p.averageRating, p.reviewCount, " +
+            "c.id, c.name, v.id, v.storeName, p.createdAt) " +
+            "FROM Product p LEFT JOIN p.category c LEFT JOIN p.vendor v ";
+
+    @Query(CARD_SELECT + "WHERE p.isFeatured = true")
+    List<ProductCardDTO> findFeaturedCards();
+
+    @Query(CARD_SELECT + "ORDER BY p.averageRating DESC, p.id DESC")
+    List<ProductCardDTO> findTopRatedCards(Pageable pageable);
+
+    @Query(CARD_SELECT + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ProductCardDTO> findNewestCards(Pageable pageable);
+
+    @Query(CARD_SELECT + "ORDER BY p.id")
+    List<ProductCardDTO> findAllCards();
+
+    // Forward-only read for exports; rows arrive in fetch-size batches instead of one list
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(CARD_SELECT + "ORDER BY p.id")
+    Stream<ProductCardDTO> streamAllCards();
+
+    // (id, name, description, brand, category name) rows for the full-text index
+    String SEARCH_DOCUMENT_SELECT = "SELECT p.id, p.name, p.description, p.brand, c.name " +
+            "FROM Product p LEFT JOIN p.category c ";
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(SEARCH_DOCUMENT_SELECT + "ORDER BY p.id")
+    Stream<Object[]> streamSearchDocuments();
+
+    @Query(SEARCH_DOCUMENT_SELECT + "WHERE p.id IN :ids")
+    List<Object[]> findSearchDocumentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // (id, averageRating, reviewCount, stock, isAvailable, discount) rows for search ranking
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id, p.averageRating, p.reviewCount, p.stock, p.isAvailable, p.discount FROM Product p ORDER BY p.id")
+    Stream<Object[]> streamRankingSignals();
+
+    @Query("SELECT p.id FROM Product p WHERE p.vendor.id = :vendorId")
+    Set<Long> findIdsByVendorId(@Param("vendorId") Long vendorId);
+
+    // (productId, categoryId) pairs of available, categorised products
+    @Query("SELECT p.id, c.id FROM Product p JOIN p.category c WHERE p.isAvailable = true")
+    List<Object[]> findAvailableCategoryPairs();
+
+    @Query("SELECT p.id, c.id FROM Product p JOIN p.category c WHERE p.isAvailable = true AND p.id IN :ids")
+    List<Object[]> findAvailableCategoryPairsByIdIn(@Param("ids") Collection<Long> ids);
+
+    boolean existsByCategoryId(Long categoryId);
+
+    @Query(CARD_SELECT + "WHERE p.id IN :ids")
+    List<ProductCardDTO> findCardsByIdIn(@Param("ids") Collection<Long> ids);
 
     // Vendor-specific queries
     List<Product> findByVendor(Vendor vendor);
-    List<Product> findByVendorId(Long vendorId);
     List<Product> findByVendorAndIsAvailableTrue(Vendor vendor);
 
-    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
-           "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%'))")
-    List<Product> searchByKeyword(@Param("keyword") String keyword);
+    @Query(CARD_SELECT + "WHERE v.id = :vendorId ORDER BY p.id")
+    List<ProductCardDTO> findCardsByVendorId(@Param("vendorId") Long vendorId);
 
-    @Query("SELECT p FROM Product p WHERE p.category = :category AND p.isAvailable = true " +
-           "AND p.price BETWEEN :minPrice AND :maxPrice ORDER BY p.price ASC")
-    List<Product> findByCategoryAndPriceRange(@Param("category") Category category,
-                                               @Param("minPrice") Double minPrice,
-                                               @Param("maxPrice") Double maxPrice);
+    @Query(CARD_SELECT + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
+           "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%'))")
+    List<ProductCardDTO> searchCardsByKeyword(@Param("keyword") String keyword);
 
-    List<Product> findTop10ByOrderByAverageRatingDesc();
-    List<Product> findTop10ByOrderByCreatedAtDesc();
+    long countByIsAvailableTrue();
 }
@@ -0,0 +1,19 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.dto.ProductCursor;
+import com.example.demo.dto.ProductFilter;
+import com.example.demo.dto.ProductSort;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Keyset page: rows strictly after {@code after} in (sort key, id) order.
+     * Pass a {@code null} cursor for the first page.
+     */
+    List<ProductCardDTO> findPage(ProductFilter filter, ProductSort sort, Sort.Direction direction,
+                               ProductCursor after, int limit);
+}
@@ -0,0 +1,103 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.dto.ProductCursor;
+import com.example.demo.dto.ProductFilter;
+import com.example.demo.dto.ProductSort;
+import com.example.demo.entity.Category;
+import com.example.demo.entity.Product;
+import com.example.demo.entity.Vendor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductCardDTO> findPage(ProductFilter filter, ProductSort sort, Sort.Direction direction,
+                                         ProductCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductCardDTO> query = cb.createQuery(ProductCardDTO.class);
+        Root<Product> product = query.from(Product.class);
+        Join<Product, Category> category = product.join("category", JoinType.LEFT);
+        Join<Product, Vendor> vendor = product.join("vendor", JoinType.LEFT);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getCategoryId() != null) {
+            predicates.add(cb.equal(category.get("id"), filter.getCategoryId()));
+        }
+        if (filter.getVendorId() != null) {
+            predicates.add(cb.equal(vendor.get("id"), filter.getVendorId()));
+        }
+        if (filter.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(product.get("price"), filter.getMinPrice()));
+        }
+        if (filter.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(product.get("price"), filter.getMaxPrice()));
+        }
+        if (filter.isAvailableOnly()) {
+            predicates.add(cb.isTrue(product.get("isAvailable")));
+        }
+        if (after != null) {
+            predicates.add(after(cb, product, after));
+        }
+
+        Path<Object> key = product.get(sort.getProperty());
+        Path<Object> id = product.get("id");
+        // Same column list as ProductRepository.CARD_SELECT
+        query.select(cb.construct(ProductCardDTO.class,
+                        product.get("id"), product.get("name"), product.get("imageUrl"),
+                        product.get("brand"), product.get("unit"), product.get("price"),
+                        product.get("discount"), product.get("stock"), product.get("isAvailable"),
+                        product.get("isFeatured"), product.get("averageRating"), product.get("reviewCount"),
+                        category.get("id"), category.get("name"), vendor.get("id"),
+                        vendor.get("storeName"), product.get("createdAt")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(direction.isAscending()
+                        ? List.of(cb.asc(key), cb.asc(id))
+                        : List.of(cb.desc(key), cb.desc(id)));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Rows following the cursor. NULL sort keys come first in ascending order and
+     * last in descending order (MySQL semantics), so they need their own branch.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate after(CriteriaBuilder cb, Root<Product> product, ProductCursor cursor) {
+        Path<Comparable> key = product.get(cursor.getSort().getProperty());
+        Path<Long> id = product.get("id");
+        Comparable value = cursor.getValue();
+
+        if (cursor.getDirection().isAscending()) {
+            if (value == null) {
+                return cb.or(cb.and(cb.isNull(key), cb.greaterThan(id, cursor.getId())), cb.isNotNull(key));
+            }
+            return cb.or(cb.greaterThan(key, value),
+                    cb.and(cb.equal(key, value), cb.greaterThan(id, cursor.getId())));
+        }
+
+        if (value == null) {
+            return cb.and(cb.isNull(key), cb.lessThan(id, cursor.getId()));
+        }
+        return cb.or(cb.lessThan(key, value),
+                cb.and(cb.equal(key, value), cb.lessThan(id, cursor.getId())),
+                cb.isNull(key));
+    }
+}
@@ -12,6 +12,7 @@ import java.util.Optional;
 @Repository
 public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findByProduct(Product product);
+    List<Review> findByProductId(Long productId);
     List<Review> findByUser(User user);
     Optional<Review> findByProductAndUser(Product product, User user);
 }
@@ -1,15 +1,44 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.UserSummaryDTO;
 import com.example.demo.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    String SUMMARY_SELECT = "SELECT new com.example.demo.dto.UserSummaryDTO("
+            + "u.id, u.username, u.email, u.role, u.phoneNumber, u.isActive, u.createdAt, u.lastLogin) "
+            + "FROM User u ";
+
+    // Runs on every authenticated request (JWT filter)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "reference-queries")
+    })
     Optional<User> findByEmail(String email);
+
     Optional<User> findByUsername(String username);
     boolean existsByEmail(String email);
     boolean existsByUsername(String username);
+
+    // Keyset pages in id order; pass the last id of the previous page
+    @Query(SUMMARY_SELECT + "WHERE u.id > :afterId ORDER BY u.id")
+    List<UserSummaryDTO> findSummariesAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // A pattern anchored at the start ("jo%") can use the unique indexes on email and username
+    @Query(SUMMARY_SELECT + "WHERE (u.email LIKE :pattern ESCAPE '!' OR u.username LIKE :pattern ESCAPE '!') "
+            + "AND u.id > :afterId ORDER BY u.id")
+    List<UserSummaryDTO> searchSummariesAfter(@Param("pattern") String pattern, @Param("afterId") long afterId,
+                                              Pageable pageable);
 }
@@ -1,6 +1,10 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.CartLineDTO;
+import com.example.demo.dto.CartOperation;
 import com.example.demo.dto.CartSummary;
+import com.example.demo.dto.CartView;
+import com.example.demo.dto.ProductCardDTO;
 import com.example.demo.entity.CartItem;
 import com.example.demo.entity.Product;
 import com.example.demo.entity.User;
@@ -11,96 +15,191 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class CartService {
+    private static final int MAX_BATCH_OPERATIONS = 200;
+
     private final CartRepository cartRepository;
+    private final CartStore cartStore;
+    private final ProductService productService;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
 
-    public List<CartItem> getCartItems(User user) {
+    // Lines from the cart store, products from one card query, totals in the same pass
+    public CartView getCart(User user) {
+        return view(cartStore.lines(user.getId()));
+    }
+
+    public List<CartLineDTO> getCartItems(User user) {
+        return getCart(user).getItems();
+    }
+
+    // The stored rows, after writing any changes still held in memory; for checkout
+    public List<CartItem> getCartItemsForCheckout(User user) {
+        cartStore.flush(user.getId());
         return cartRepository.findByUser(user);
     }
 
-    @Transactional
     public CartItem addToCart(User user, Long productId, Integer quantity) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        List<CartItem> userCart = cartRepository.findByUser(user);
-        CartItem existingItem = userCart.stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElse(null);
-
-        if (existingItem != null) {
-            existingItem.setQuantity(existingItem.getQuantity() + quantity);
-            return cartRepository.save(existingItem);
+        requirePositive(quantity);
+        Product product = productService.getProductById(productId);
+        CartStore.Line line = cartStore.add(user.getId(), productId, quantity, () -> {
+            cartRepository.upsertLine(user.getId(), productId, quantity);
+            return storedLines(user, List.of(productId)).get(0);
+        });
+        return toCartItem(user, line, product);
+    }
+
+    /**
+     * Applies the operations in order, all or none. Lines for new products are upserted in one
+     * transaction; the other changes go through the cart store's batched writes.
+     */
+    public CartView applyOperations(User user, List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No cart operations given");
+        }
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_OPERATIONS + " cart operations per request");
+        }
+        Set<Long> knownProducts = new HashSet<>();
+        for (CartOperation operation : operations) {
+            switch (operationType(operation)) {
+                case "add" -> {
+                    requirePresent(operation.getProductId(), "productId");
+                    requirePositive(operation.getQuantity());
+                    if (knownProducts.add(operation.getProductId())) {
+                        productService.getProductById(operation.getProductId());
+                    }
+                }
+                case "set" -> {
+                    requirePresent(operation.getCartItemId(), "cartItemId");
+                    requirePositive(operation.getQuantity());
+                }
+                case "remove" -> requirePresent(operation.getCartItemId(), "cartItemId");
+                default -> throw new IllegalArgumentException("Unknown cart operation: " + operation.getOp());
+            }
         }
 
-        CartItem newItem = new CartItem();
-        newItem.setUser(user);
-        newItem.setProduct(product);
-        newItem.setQuantity(quantity);
-        return cartRepository.save(newItem);
+        List<CartStore.Line> lines = cartStore.edit(user.getId(), edit -> {
+            for (CartOperation operation : operations) {
+                switch (operationType(operation)) {
+                    case "add" -> edit.add(operation.getProductId(), operation.getQuantity());
+                    case "set" -> edit.set(operation.getCartItemId(), operation.getQuantity());
+                    default -> edit.remove(operation.getCartItemId());
+                }
+            }
+        }, added -> {
+            added.forEach((productId, quantity) -> cartRepository.upsertLine(user.getId(), productId, quantity));
+            return storedLines(user, added.keySet());
+        });
+
+        return view(lines);
     }
 
-    @Transactional
-    public CartItem updateCartItemQuantity(Long cartItemId, Integer quantity) {
-        CartItem cartItem = cartRepository.findById(cartItemId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-        cartItem.setQuantity(quantity);
-        return cartRepository.save(cartItem);
+    public CartItem updateCartItemQuantity(User user, Long cartItemId, Integer quantity) {
+        requirePositive(quantity);
+        return toCartItem(user, cartStore.update(user.getId(), cartItemId, current -> quantity));
     }
 
-    @Transactional
-    public void removeFromCart(Long cartItemId) {
-        cartRepository.deleteById(cartItemId);
+    public void removeFromCart(User user, Long cartItemId) {
+        cartStore.remove(user.getId(), cartItemId);
     }
 
     @Transactional
     public void clearCart(User user) {
         cartRepository.deleteByUser(user);
+        cartStore.evict(user.getId());
     }
 
-    @Transactional
-    public CartItem incrementQuantity(Long cartItemId) {
-        CartItem cartItem = cartRepository.findById(cartItemId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-        cartItem.setQuantity(cartItem.getQuantity() + 1);
-        return cartRepository.save(cartItem);
+    public CartItem incrementQuantity(User user, Long cartItemId) {
+        return toCartItem(user, cartStore.update(user.getId(), cartItemId, current -> current + 1));
     }
 
-    @Transactional
-    public CartItem decrementQuantity(Long cartItemId) {
-        CartItem cartItem = cartRepository.findById(cartItemId)
-                .orElseThrow(() -> new RuntimeException("Cart item not found"));
-
-        if (cartItem.getQuantity() <= 1) {
-            throw new RuntimeException("Cannot decrease quantity below 1");
-        }
-
-        cartItem.setQuantity(cartItem.getQuantity() - 1);
-        return cartRepository.save(cartItem);
+    public CartItem decrementQuantity(User user, Long cartItemId) {
+        return toCartItem(user, cartStore.update(user.getId(), cartItemId, current -> {
+            if (current <= 1) {
+                throw new RuntimeException("Cannot decrease quantity below 1");
+            }
+            return current - 1;
+        }));
     }
 
     public CartSummary getCartSummary(User user) {
-        List<CartItem> cartItems = getCartItems(user);
+        return getCart(user).getSummary();
+    }
 
-        int totalItems = cartItems.stream()
-                .mapToInt(CartItem::getQuantity)
-                .sum();
+    // Lines whose product was deleted in the meantime are skipped
+    private CartView view(List<CartStore.Line> lines) {
+        Map<Long, ProductCardDTO> cards = new HashMap<>();
+        if (!lines.isEmpty()) {
+            Set<Long> productIds = new HashSet<>();
+            lines.forEach(line -> productIds.add(line.productId()));
+            productRepository.findCardsByIdIn(productIds).forEach(card -> cards.put(card.getId(), card));
+        }
 
-        double subtotal = cartItems.stream()
-                .mapToDouble(item -> item.getProduct().getPrice() * item.getQuantity())
-                .sum();
+        List<CartLineDTO> items = new ArrayList<>(lines.size());
+        int totalItems = 0;
+        double subtotal = 0;
+        for (CartStore.Line line : lines) {
+            ProductCardDTO card = cards.get(line.productId());
+            if (card != null) {
+                items.add(new CartLineDTO(line.itemId(), card, line.quantity()));
+                totalItems += line.quantity();
+                subtotal += card.getPrice() * line.quantity();
+            }
+        }
 
         double shippingFee = subtotal >= 50.0 ? 0.0 : 5.0;
         double tax = subtotal * 0.08;
         double total = subtotal + shippingFee + tax;
 
-        return new CartSummary(totalItems, subtotal, shippingFee, tax, total);
+        return new CartView(items, new CartSummary(totalItems, subtotal, shippingFee, tax, total));
+    }
+
+    private List<CartStore.Line> storedLines(User user, Collection<Long> productIds) {
+        List<CartStore.Line> lines = new ArrayList<>();
+        for (Object[] row : cartRepository.findLinesByUserIdAndProductIds(user.getId(), productIds)) {
+            lines.add(new CartStore.Line((Long) row[0], (Long) row[1], (Integer) row[2]));
+        }
+        return lines;
+    }
+
+    private CartItem toCartItem(User user, CartStore.Line line) {
+        return toCartItem(user, line, productService.getProductById(line.productId()));
+    }
+
+    private static CartItem toCartItem(User user, CartStore.Line line, Product product) {
+        CartItem item = new CartItem();
+        item.setId(line.itemId());
+        item.setUser(user);
+        item.setProduct(product);
+        item.setQuantity(line.quantity());
+        return item;
+    }
+
+    private static String operationType(CartOperation operation) {
+        return operation.getOp() == null ? "" : operation.getOp().trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void requirePresent(Long id, String field) {
+        if (id == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+    }
+
+    private static void requirePositive(Integer quantity) {
+        if (quantity == null || quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1");
+        }
     }
 }
@@ -0,0 +1,688 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.CartRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind store of cart contents. A user's cart is loaded from {@code cart_items} on
+ * first use and then served from memory; quantity changes and removals only touch memory and
+ * are written to the database in batches every {@code cart.flush-interval-ms}, so ten clicks
+ * on "+" become one UPDATE. New lines are inserted right away, since the client needs their id.
+ * <p>
+ * Every change not yet written is also appended to a journal on local disk
+ * ({@code cart.journal-dir}), and a journal segment is deleted only once its changes are in
+ * the database. A restart after a crash replays what is left. Carts idle for
+ * {@code cart.idle-evict-minutes} are dropped from memory once written.
+ * <p>
+ * Assumes this instance is the only writer of cart quantities, as with the other in-memory
+ * views of the catalog.
+ */
+// Lines are only loaded and inserted once duplicate ones are merged
+@Component
+@DependsOn("cartItemKeyMigration")
+@Slf4j
+public class CartStore {
+
+    private static final int BATCH_SIZE = 500;
+    private static final String UPDATE_SQL = "UPDATE cart_items SET quantity = ? WHERE id = ?";
+    private static final String DELETE_SQL = "DELETE FROM cart_items WHERE id = ?";
+    // Journal quantity of a removed line
+    private static final int REMOVED = 0;
+
+    private final CartRepository cartRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final Path journalDir;
+    private final long idleNanos;
+
+    private final Map<Long, UserCart> carts = new ConcurrentHashMap<>();
+    // Serialises database writes, so a journal segment is deleted only after all it holds is written
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // All guarded by this. Changes not yet written, by cart item id; newest state only
+    private Map<Long, Change> pending = new LinkedHashMap<>();
+    // Changes taken from pending by the write under way, until it commits or fails, and their users
+    private Map<Long, Change> writing = Map.of();
+    private Set<Long> writingUsers = Set.of();
+    // Users whose new lines are being inserted; a flush leaves their changes pending
+    private final Set<Long> inserting = new HashSet<>();
+    // Carts being loaded; marked stale by an eviction or a write of the user's changes
+    private final List<Loading> loading = new ArrayList<>();
+    private Journal journal;
+    // Closed journal segments whose changes failed to write and went back to pending
+    private final List<Path> unwritten = new ArrayList<>();
+
+    public CartStore(CartRepository cartRepository,
+                     JdbcTemplate jdbcTemplate,
+                     PlatformTransactionManager transactionManager,
+                     @Value("${cart.journal-dir:data/cart-journal}") String journalDir,
+                     @Value("${cart.idle-evict-minutes:30}") long idleEvictMinutes) {
+        this.cartRepository = cartRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.journalDir = Paths.get(journalDir).toAbsolutePath().normalize();
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleEvictMinutes);
+    }
+
+    /** Replays changes a previous run journaled but did not write, before any cart is read. */
+    @PostConstruct
+    public void recover() throws IOException {
+        List<Path> segments = Journal.segments(journalDir);
+        synchronized (this) {
+            for (Path segment : segments) {
+                Journal.read(segment, pending);
+            }
+            unwritten.addAll(segments);
+            journal = Journal.open(journalDir, segments.isEmpty() ? 1 : Journal.sequence(segments.get(segments.size() - 1)) + 1);
+        }
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} journaled cart changes", pending.size());
+        }
+        flush();
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+        synchronized (this) {
+            journal.close();
+        }
+    }
+
+    public List<Line> lines(long userId) {
+        return withCart(userId, cart -> new ArrayList<>(cart.lines.values()));
+    }
+
+    /**
+     * Adds {@code quantity} to the user's line for the product, or creates the line with
+     * {@code insert}, run in its own transaction, which must store it and return the stored line.
+     */
+    public Line add(long userId, long productId, int quantity, Supplier<Line> insert) {
+        return withCart(userId, cart -> {
+            for (Line line : cart.lines.values()) {
+                if (line.productId() == productId) {
+                    return set(cart, userId, line, line.quantity() + quantity);
+                }
+            }
+            startInsert(userId);
+            try {
+                Line line = revive(userId, writeTransaction.execute(status -> insert.get()), quantity);
+                cart.lines.put(line.itemId(), line);
+                return line;
+            } finally {
+                endInsert(userId);
+            }
+        });
+    }
+
+    /**
+     * Applies {@code changes} to a copy of the user's cart and keeps the result only if they all
+     * succeed, atomically with respect to other changes to the cart. Lines for products new to
+     * the cart are created together by {@code insert}, run in one transaction and given
+     * quantities by product id, which must store them and return the stored lines.
+     * Returns the resulting lines.
+     */
+    public List<Line> edit(long userId, Consumer<Edit> changes, Function<Map<Long, Integer>, List<Line>> insert) {
+        return withCart(userId, cart -> {
+            Edit edit = new Edit(cart.lines);
+            changes.accept(edit);
+            if (!edit.added.isEmpty()) {
+                startInsert(userId);
+            }
+            try {
+                List<Line> inserted = edit.added.isEmpty() ? List.of() : writeTransaction.execute(status -> insert.apply(edit.added));
+                for (Line line : cart.lines.values()) {
+                    Line edited = edit.lines.get(line.itemId());
+                    if (edited == null) {
+                        record(userId, line.itemId(), REMOVED);
+                    } else if (edited.quantity() != line.quantity()) {
+                        record(userId, line.itemId(), edited.quantity());
+                    }
+                }
+                cart.lines.clear();
+                cart.lines.putAll(edit.lines);
+                // After the removals above, which may include the row an insert reused
+                for (Line line : inserted) {
+                    Line revived = revive(userId, line, edit.added.get(line.productId()));
+                    cart.lines.put(revived.itemId(), revived);
+                }
+            } finally {
+                if (!edit.added.isEmpty()) {
+                    endInsert(userId);
+                }
+            }
+            return new ArrayList<>(cart.lines.values());
+        });
+    }
+
+    /**
+     * Sets a line's quantity to {@code change} applied to the current one, atomically with
+     * respect to other changes to the cart. {@code change} may throw to reject the change.
+     */
+    public Line update(long userId, long itemId, IntUnaryOperator change) {
+        return withCart(userId, cart -> {
+            Line line = line(cart, itemId);
+            return set(cart, userId, line, change.applyAsInt(line.quantity()));
+        });
+    }
+
+    public void remove(long userId, long itemId) {
+        withCart(userId, cart -> {
+            line(cart, itemId);
+            cart.lines.remove(itemId);
+            record(userId, itemId, REMOVED);
+            return null;
+        });
+    }
+
+    /**
+     * Drops the user's cart from memory, and again when the current transaction completes, so
+     * it is reloaded from the database after a direct write such as clearing it on checkout.
+     */
+    public void evict(long userId) {
+        evictNow(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow(userId);
+                }
+            });
+        }
+    }
+
+    /** Writes the user's pending changes now, in their own transaction; for checkout. */
+    public void flush(long userId) {
+        flushLock.lock();
+        try {
+            Map<Long, Change> mine = new LinkedHashMap<>();
+            synchronized (this) {
+                waitWhile(() -> inserting.contains(userId));
+                pending.entrySet().removeIf(entry -> {
+                    if (entry.getValue().userId() == userId) {
+                        mine.put(entry.getKey(), entry.getValue());
+                        return true;
+                    }
+                    return false;
+                });
+                if (!mine.isEmpty()) {
+                    startWrite(mine);
+                }
+            }
+            if (!mine.isEmpty()) {
+                write(mine);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, Change> batch = new LinkedHashMap<>();
+            List<Path> segments;
+            synchronized (this) {
+                Map<Long, Change> held = new LinkedHashMap<>();
+                pending.forEach((itemId, change) -> (inserting.contains(change.userId()) ? held : batch).put(itemId, change));
+                pending = held;
+                segments = new ArrayList<>(unwritten);
+                unwritten.clear();
+                if (journal != null && journal.records > 0) {
+                    segments.add(journal.rotate());
+                }
+                // Journaled again, as the segments holding them are deleted once the batch is written
+                held.forEach((itemId, change) -> journal.append(change.userId(), itemId, change.quantity()));
+                if (!batch.isEmpty()) {
+                    startWrite(batch);
+                }
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    unwritten.addAll(segments);
+                }
+                throw e;
+            }
+            // Oldest first, so a crash part way leaves only the newest states to replay
+            segments.stream().sorted(Comparator.comparingLong(Journal::sequence)).forEach(Journal::delete);
+        } catch (RuntimeException e) {
+            log.warn("Cart flush failed, retrying: {}", e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+        evictIdle();
+    }
+
+    /**
+     * Makes {@code batch}, just taken from pending, the write under way; loads lay it over the
+     * rows they read until it ends. Called holding flushLock and the monitor.
+     */
+    private void startWrite(Map<Long, Change> batch) {
+        writing = batch;
+        writingUsers = new HashSet<>();
+        batch.values().forEach(change -> writingUsers.add(change.userId()));
+    }
+
+    // Puts the batch back in pending (under any newer change) when the write fails
+    private void write(Map<Long, Change> batch) {
+        List<Map.Entry<Long, Change>> updates = new ArrayList<>();
+        List<Long> removals = new ArrayList<>();
+        for (Map.Entry<Long, Change> change : batch.entrySet()) {
+            if (change.getValue().quantity() == REMOVED) {
+                removals.add(change.getKey());
+            } else {
+                updates.add(change);
+            }
+        }
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, updates, BATCH_SIZE, (ps, update) -> {
+                    ps.setInt(1, update.getValue().quantity());
+                    ps.setLong(2, update.getKey());
+                });
+                jdbcTemplate.batchUpdate(DELETE_SQL, removals, BATCH_SIZE, (ps, itemId) -> ps.setLong(1, itemId));
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                batch.forEach(pending::putIfAbsent);
+            }
+            throw e;
+        } finally {
+            endWrite();
+        }
+    }
+
+    private synchronized void endWrite() {
+        // A load that read the rows before the commit and overlays after it would miss the batch
+        for (Loading load : loading) {
+            if (writingUsers.contains(load.userId)) {
+                load.stale = true;
+            }
+        }
+        writing = Map.of();
+        writingUsers = Set.of();
+        notifyAll();
+    }
+
+    /**
+     * Waits for any write of the user's changes to end, then keeps flushes off them until
+     * {@link #endInsert}: an insert may reuse the row of a line removed but not yet written,
+     * and {@link #revive} must replace that removal before it reaches the database.
+     */
+    private synchronized void startInsert(long userId) {
+        waitWhile(() -> writingUsers.contains(userId));
+        inserting.add(userId);
+    }
+
+    private synchronized void endInsert(long userId) {
+        inserting.remove(userId);
+        notifyAll();
+    }
+
+    // Called holding the monitor; uninterruptible, as the waits are as short as one write
+    private void waitWhile(BooleanSupplier busy) {
+        boolean interrupted = false;
+        while (busy.getAsBoolean()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> T withCart(long userId, Function<UserCart, T> action) {
+        while (true) {
+            UserCart cart = carts.get(userId);
+            if (cart == null) {
+                Loading load = new Loading(userId);
+                synchronized (this) {
+                    loading.add(load);
+                }
+                boolean stale;
+                try {
+                    UserCart loaded = load(userId);
+                    cart = carts.putIfAbsent(userId, loaded);
+                    if (cart != null) {
+                        continue;
+                    }
+                    cart = loaded;
+                } finally {
+                    synchronized (this) {
+                        loading.remove(load);
+                        stale = load.stale;
+                    }
+                }
+                // An evict or a write since the load began may have changed rows it read; load again
+                if (stale) {
+                    evictNow(userId);
+                    continue;
+                }
+            }
+            synchronized (cart) {
+                if (!cart.evicted) {
+                    cart.usedAt = System.nanoTime();
+                    return action.apply(cart);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rows as stored, with changes not yet written laid over them, newest first: pending, then
+     * the write under way. A write of the user's changes ending between the read and the overlay
+     * marks the load stale, as its changes are then in neither.
+     */
+    private UserCart load(long userId) {
+        List<Object[]> rows = cartRepository.findLinesByUserId(userId);
+        UserCart cart = new UserCart();
+        synchronized (this) {
+            for (Object[] row : rows) {
+                long itemId = (Long) row[0];
+                Change change = pending.get(itemId);
+                if (change == null) {
+                    change = writing.get(itemId);
+                }
+                int quantity = change != null ? change.quantity() : (Integer) row[2];
+                if (quantity != REMOVED) {
+                    cart.lines.put(itemId, new Line(itemId, (Long) row[1], quantity));
+                }
+            }
+        }
+        return cart;
+    }
+
+    /**
+     * A line just stored by an insert. A line removed from memory keeps its row until the removal
+     * is flushed, so the upsert may have reused that row and added to its old quantity; the
+     * pending removal is then replaced by the quantity asked for. Called between
+     * {@link #startInsert} and {@link #endInsert}, so the removal cannot be in the middle of being written.
+     */
+    private Line revive(long userId, Line stored, int quantity) {
+        synchronized (this) {
+            Change change = pending.get(stored.itemId());
+            if (change == null || change.quantity() != REMOVED) {
+                return stored;
+            }
+            record(userId, stored.itemId(), quantity);
+        }
+        return new Line(stored.itemId(), stored.productId(), quantity);
+    }
+
+    private Line set(UserCart cart, long userId, Line line, int quantity) {
+        Line updated = new Line(line.itemId(), line.productId(), quantity);
+        cart.lines.put(line.itemId(), updated);
+        record(userId, line.itemId(), quantity);
+        return updated;
+    }
+
+    private static Line line(UserCart cart, long itemId) {
+        Line line = cart.lines.get(itemId);
+        if (line == null) {
+            throw new RuntimeException("Cart item not found");
+        }
+        return line;
+    }
+
+    private synchronized void record(long userId, long itemId, int quantity) {
+        pending.put(itemId, new Change(userId, quantity));
+        journal.append(userId, itemId, quantity);
+    }
+
+    private void evictNow(long userId) {
+        synchronized (this) {
+            for (Loading load : loading) {
+                if (load.userId == userId) {
+                    load.stale = true;
+                }
+            }
+        }
+        UserCart cart = carts.get(userId);
+        if (cart != null) {
+            synchronized (cart) {
+                cart.evicted = true;
+                carts.remove(userId, cart);
+            }
+        }
+    }
+
+    // Carts with changes still pending stay, though a reload would see those changes anyway
+    private void evictIdle() {
+        Set<Long> dirty = new HashSet<>();
+        synchronized (this) {
+            pending.values().forEach(change -> dirty.add(change.userId()));
+        }
+        long now = System.nanoTime();
+        carts.forEach((userId, cart) -> {
+            if (now - cart.usedAt > idleNanos && !dirty.contains(userId)) {
+                evictNow(userId);
+            }
+        });
+    }
+
+    /** One cart line; immutable. */
+    public record Line(long itemId, long productId, int quantity) {
+    }
+
+    /** Changes to a working copy of a cart, for {@link #edit}. */
+    public static final class Edit {
+        private final Map<Long, Line> lines;
+        // Quantities of products not yet in the cart, in the order added
+        private final Map<Long, Integer> added = new LinkedHashMap<>();
+
+        private Edit(Map<Long, Line> lines) {
+            this.lines = new LinkedHashMap<>(lines);
+        }
+
+        public void add(long productId, int quantity) {
+            for (Line line : lines.values()) {
+                if (line.productId() == productId) {
+                    lines.put(line.itemId(), new Line(line.itemId(), productId, line.quantity() + quantity));
+                    return;
+                }
+            }
+            added.merge(productId, quantity, Integer::sum);
+        }
+
+        public void set(long itemId, int quantity) {
+            Line line = line(itemId);
+            lines.put(itemId, new Line(itemId, line.productId(), quantity));
+        }
+
+        public void remove(long itemId) {
+            line(itemId);
+            lines.remove(itemId);
+        }
+
+        private Line line(long itemId) {
+            Line line = lines.get(itemId);
+            if (line == null) {
+                throw new RuntimeException("Cart item not found");
+            }
+            return line;
+        }
+    }
+
+    // The newest state of a cart item not yet written: a quantity, or REMOVED
+    private record Change(long userId, int quantity) {
+    }
+
+    // A load of a user's cart under way; stale is guarded by the store's monitor
+    private static final class Loading {
+        final long userId;
+        boolean stale;
+
+        Loading(long userId) {
+            this.userId = userId;
+        }
+    }
+
+    private static final class UserCart {
+        // By cart item id, in the order added
+        final Map<Long, Line> lines = new LinkedHashMap<>();
+        long usedAt = System.nanoTime();
+        boolean evicted;
+    }
+
+    /**
+     * Append-only segments of (userId, itemId, quantity) records named {@code <sequence>.log}.
+     * Each record is handed to the operating system as it is appended, so it survives a crash
+     * of the process (not of the machine). A truncated last record is ignored on replay.
+     */
+    private static final class Journal {
+        private final Path dir;
+        private long sequence;
+        private DataOutputStream out;
+        int records;
+
+        private Journal(Path dir, long sequence) throws IOException {
+            this.dir = dir;
+            this.sequence = sequence;
+            this.out = openSegment();
+        }
+
+        static Journal open(Path dir, long sequence) throws IOException {
+            Files.createDirectories(dir);
+            return new Journal(dir, sequence);
+        }
+
+        void append(long userId, long itemId, int quantity) {
+            try {
+                out.writeLong(userId);
+                out.writeLong(itemId);
+                out.writeInt(quantity);
+                out.flush();
+                records++;
+            } catch (IOException e) {
+                // The change is still pending in memory; it only loses crash protection
+                log.warn("Could not journal cart change: {}", e.getMessage());
+            }
+        }
+
+        // Closes the current segment and starts the next; returns the closed one
+        Path rotate() {
+            Path closed = segment(sequence);
+            try {
+                out.close();
+                sequence++;
+                out = openSegment();
+                records = 0;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return closed;
+        }
+
+        void close() {
+            try {
+                out.close();
+                if (records == 0) {
+                    Files.deleteIfExists(segment(sequence));
+                }
+            } catch (IOException e) {
+                log.warn("Could not close cart journal: {}", e.getMessage());
+            }
+        }
+
+        private DataOutputStream openSegment() throws IOException {
+            return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segment(sequence),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+
+        private Path segment(long sequence) {
+            return dir.resolve(sequence + ".log");
+        }
+
+        static List<Path> segments(Path dir) throws IOException {
+            if (!Files.isDirectory(dir)) {
+                return List.of();
+            }
+            try (Stream<Path> files = Files.list(dir)) {
+                return files.filter(file -> file.getFileName().toString().matches("\\d+\\.log"))
+                        .sorted(Comparator.comparingLong(Journal::sequence))
+                        .toList();
+            }
+        }
+
+        static long sequence(Path segment) {
+            String name = segment.getFileName().toString();
+            return Long.parseLong(name.substring(0, name.length() - ".log".length()));
+        }
+
+        // Later records overwrite earlier ones for the same item
+        static void read(Path segment, Map<Long, Change> into) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+                while (true) {
+                    long userId;
+                    long itemId;
+                    int quantity;
+                    try {
+                        userId = in.readLong();
+                        itemId = in.readLong();
+                        quantity = in.readInt();
+                    } catch (EOFException end) {
+                        return;
+                    }
+                    into.put(itemId, new Change(userId, quantity));
+                }
+            }
+        }
+
+        static void delete(Path segment) {
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                log.warn("Could not delete cart journal segment {}: {}", segment, e.getMessage());
+            }
+        }
+    }
+}
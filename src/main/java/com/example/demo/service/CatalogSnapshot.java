@@ -0,0 +1,780 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.dto.ProductCursor;
+import com.example.demo.dto.ProductFilter;
+import com.example.demo.dto.ProductSort;
+import org.springframework.data.domain.Sort;
+
+import java.text.Collator;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Column-oriented copy of the catalog: one primitive array per field, indexed by row,
+ * with rows in id order. Repeated strings (brand, unit, category, vendor) are stored as
+ * dictionary codes, and every {@link ProductSort} has a precomputed row permutation, so
+ * a listing is a binary search to the cursor followed by a scan that allocates only the
+ * cards it returns.
+ *
+ * <p>A published snapshot is never modified. {@link Editor} shallow-copies it and clones
+ * only the columns it writes, so successive versions share every unchanged column.
+ * Nulls use sentinels: NaN for doubles, {@code Integer.MIN_VALUE} for ints,
+ * {@code Long.MIN_VALUE} for timestamps and -1 for dictionary codes. They sort first, as
+ * NULL does in MySQL, which keeps cursors interchangeable with the SQL keyset path.
+ * Names compare case- and accent-insensitively like MySQL's default utf8mb4_0900_ai_ci
+ * collation ("apple" = "Äpple", ties broken by id); the JDK's root collation only
+ * approximates UCA 9.0, so names differing in rarer characters may order differently.
+ */
+final class CatalogSnapshot implements Cloneable {
+
+    private static final byte AVAILABLE = 1;
+    private static final byte FEATURED = 2;
+    private static final byte DELETED = 4;
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final int NO_CODE = -1;
+
+    private static final ProductSort[] SORTS = ProductSort.values();
+    // Primary strength ignores case and accents; compare() is synchronized, so one is shared
+    private static final Collator NAME_COLLATOR = nameCollator();
+
+    private enum Column {
+        NAMES, IMAGE_URLS, BRANDS, UNITS, PRICES, DISCOUNTS, STOCK, RATINGS,
+        REVIEW_COUNTS, CATEGORIES, VENDORS, CREATED_AT, FLAGS, ORDERS
+    }
+
+    private long version;
+    private int size;
+    private long[] ids;
+    private String[] names;
+    private String[] imageUrls;
+    private int[] brands;
+    private int[] units;
+    private double[] prices;
+    private double[] discounts;
+    private int[] stock;
+    private double[] ratings;
+    private int[] reviewCounts;
+    private int[] categories;
+    private int[] vendors;
+    private long[] createdAt;   // epoch micros
+    private byte[] flags;
+    private Dictionary brandDict;
+    private Dictionary unitDict;
+    private KeyDictionary categoryDict;
+    private KeyDictionary vendorDict;
+    // Per ProductSort.ordinal(): row indices ascending by (sort key, id), deleted rows included
+    private int[][] orders;
+    private int liveCount;
+    private int availableCount;
+    private int deletedCount;
+
+    private CatalogSnapshot() {
+    }
+
+    static CatalogSnapshot build(List<ProductCardDTO> cards, long version) {
+        List<ProductCardDTO> sorted = new ArrayList<>(cards);
+        sorted.sort(Comparator.comparing(ProductCardDTO::getId));
+
+        Set<String> brandValues = new LinkedHashSet<>();
+        Set<String> unitValues = new LinkedHashSet<>();
+        Map<Long, String> categoryValues = new LinkedHashMap<>();
+        Map<Long, String> vendorValues = new LinkedHashMap<>();
+        for (ProductCardDTO card : sorted) {
+            brandValues.add(card.getBrand());
+            unitValues.add(card.getUnit());
+            if (card.getCategoryId() != null) {
+                categoryValues.put(card.getCategoryId(), card.getCategoryName());
+            }
+            if (card.getVendorId() != null) {
+                vendorValues.put(card.getVendorId(), card.getVendorStoreName());
+            }
+        }
+
+        CatalogSnapshot snapshot = new CatalogSnapshot();
+        snapshot.version = version;
+        snapshot.brandDict = Dictionary.of(brandValues);
+        snapshot.unitDict = Dictionary.of(unitValues);
+        snapshot.categoryDict = KeyDictionary.of(categoryValues);
+        snapshot.vendorDict = KeyDictionary.of(vendorValues);
+        snapshot.allocate(Math.max(16, sorted.size() + sorted.size() / 8));
+        for (ProductCardDTO card : sorted) {
+            snapshot.writeRow(snapshot.size++, card);
+            snapshot.liveCount++;
+            if (Boolean.TRUE.equals(card.getIsAvailable())) {
+                snapshot.availableCount++;
+            }
+        }
+        snapshot.orders = new int[SORTS.length][];
+        for (ProductSort sort : SORTS) {
+            snapshot.orders[sort.ordinal()] = IntStream.range(0, snapshot.size).boxed()
+                    .sorted((a, b) -> snapshot.compareRows(sort, a, b))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        return snapshot;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    int countLive() {
+        return liveCount;
+    }
+
+    int countAvailable() {
+        return availableCount;
+    }
+
+    /**
+     * Same contract as {@code ProductRepositoryCustom.findPage}: up to {@code limit} cards
+     * after the cursor, ordered by (sort key, id) in the given direction.
+     */
+    List<ProductCardDTO> find(ProductFilter filter, ProductSort sort, Sort.Direction direction,
+                              ProductCursor after, int limit) {
+        int category = NO_CODE;
+        if (filter.getCategoryId() != null) {
+            category = categoryDict.codeOf(filter.getCategoryId());
+            if (category == NO_CODE) {
+                return List.of();
+            }
+        }
+        int vendor = NO_CODE;
+        if (filter.getVendorId() != null) {
+            vendor = vendorDict.codeOf(filter.getVendorId());
+            if (vendor == NO_CODE) {
+                return List.of();
+            }
+        }
+        double minPrice = filter.getMinPrice() != null ? filter.getMinPrice() : Double.NEGATIVE_INFINITY;
+        double maxPrice = filter.getMaxPrice() != null ? filter.getMaxPrice() : Double.POSITIVE_INFINITY;
+        boolean priceFiltered = filter.getMinPrice() != null || filter.getMaxPrice() != null;
+        byte required = filter.isAvailableOnly() ? AVAILABLE : 0;
+
+        int[] order = orders[sort.ordinal()];
+        boolean ascending = direction.isAscending();
+        int position;
+        if (after == null) {
+            position = ascending ? 0 : order.length - 1;
+        } else {
+            Object key = cursorKey(sort, after.getValue());
+            position = ascending
+                    ? bound(order, sort, key, after.getId(), true)
+                    : bound(order, sort, key, after.getId(), false) - 1;
+        }
+
+        List<ProductCardDTO> page = new ArrayList<>(Math.min(limit, 128));
+        int step = ascending ? 1 : -1;
+        for (int i = position; i >= 0 && i < order.length && page.size() < limit; i += step) {
+            int row = order[i];
+            byte rowFlags = flags[row];
+            if ((rowFlags & DELETED) != 0 || (rowFlags & required) != required) {
+                continue;
+            }
+            if ((category != NO_CODE && categories[row] != category)
+                    || (vendor != NO_CODE && vendors[row] != vendor)) {
+                continue;
+            }
+            // NaN (null price) fails both comparisons, as NULL does in SQL
+            if (priceFiltered && !(prices[row] >= minPrice && prices[row] <= maxPrice)) {
+                continue;
+            }
+            page.add(toCard(row));
+        }
+        return page;
+    }
+
+    // Live cards in id order, optionally for one vendor
+    List<ProductCardDTO> findAll(Long vendorId) {
+        int vendor = NO_CODE;
+        if (vendorId != null) {
+            vendor = vendorDict.codeOf(vendorId);
+            if (vendor == NO_CODE) {
+                return List.of();
+            }
+        }
+        List<ProductCardDTO> cards = new ArrayList<>(vendorId == null ? liveCount : 16);
+        for (int row = 0; row < size; row++) {
+            if ((flags[row] & DELETED) == 0 && (vendor == NO_CODE || vendors[row] == vendor)) {
+                cards.add(toCard(row));
+            }
+        }
+        return cards;
+    }
+
+    Editor edit() {
+        return new Editor(this);
+    }
+
+    private ProductCardDTO toCard(int row) {
+        int brand = brands[row];
+        int unit = units[row];
+        int category = categories[row];
+        int vendor = vendors[row];
+        return new ProductCardDTO(
+                ids[row],
+                names[row],
+                imageUrls[row],
+                brand != NO_CODE ? brandDict.values[brand] : null,
+                unit != NO_CODE ? unitDict.values[unit] : null,
+                Double.isNaN(prices[row]) ? null : prices[row],
+                Double.isNaN(discounts[row]) ? null : discounts[row],
+                stock[row] != NULL_INT ? stock[row] : null,
+                (flags[row] & AVAILABLE) != 0,
+                (flags[row] & FEATURED) != 0,
+                Double.isNaN(ratings[row]) ? null : ratings[row],
+                reviewCounts[row] != NULL_INT ? reviewCounts[row] : null,
+                category != NO_CODE ? categoryDict.keys[category] : null,
+                category != NO_CODE ? categoryDict.labels[category] : null,
+                vendor != NO_CODE ? vendorDict.keys[vendor] : null,
+                vendor != NO_CODE ? vendorDict.labels[vendor] : null,
+                createdAt[row] != NULL_TIME ? fromMicros(createdAt[row]) : null);
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        names = new String[capacity];
+        imageUrls = new String[capacity];
+        brands = new int[capacity];
+        units = new int[capacity];
+        prices = new double[capacity];
+        discounts = new double[capacity];
+        stock = new int[capacity];
+        ratings = new double[capacity];
+        reviewCounts = new int[capacity];
+        categories = new int[capacity];
+        vendors = new int[capacity];
+        createdAt = new long[capacity];
+        flags = new byte[capacity];
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1) + 1;
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        imageUrls = Arrays.copyOf(imageUrls, capacity);
+        brands = Arrays.copyOf(brands, capacity);
+        units = Arrays.copyOf(units, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        discounts = Arrays.copyOf(discounts, capacity);
+        stock = Arrays.copyOf(stock, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        reviewCounts = Arrays.copyOf(reviewCounts, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        vendors = Arrays.copyOf(vendors, capacity);
+        createdAt = Arrays.copyOf(createdAt, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+
+    // Writes every column of a row that no published snapshot can see yet
+    private void writeRow(int row, ProductCardDTO card) {
+        ids[row] = card.getId();
+        names[row] = card.getName();
+        imageUrls[row] = card.getImageUrl();
+        brands[row] = brandDict.codeOf(card.getBrand());
+        units[row] = unitDict.codeOf(card.getUnit());
+        prices[row] = toDouble(card.getPrice());
+        discounts[row] = toDouble(card.getDiscount());
+        stock[row] = toInt(card.getStock());
+        ratings[row] = toDouble(card.getAverageRating());
+        reviewCounts[row] = toInt(card.getReviewCount());
+        categories[row] = categoryDict.codeOf(card.getCategoryId());
+        vendors[row] = vendorDict.codeOf(card.getVendorId());
+        createdAt[row] = toMicros(card.getCreatedAt());
+        flags[row] = flagsOf(card);
+    }
+
+    private int rowOf(long id) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ids[mid] < id) {
+                lo = mid + 1;
+            } else if (ids[mid] > id) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // First index whose (key, id) is greater than (strict) or not less than the given position
+    private int bound(int[] order, ProductSort sort, Object key, long id, boolean strict) {
+        int lo = 0;
+        int hi = order.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareToKey(sort, order[mid], key);
+            if (cmp == 0) {
+                cmp = Long.compare(ids[order[mid]], id);
+            }
+            if (cmp < 0 || (strict && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int compareRows(ProductSort sort, int a, int b) {
+        int cmp = compareToKey(sort, a, keyOf(sort, b));
+        return cmp != 0 ? cmp : Long.compare(ids[a], ids[b]);
+    }
+
+    private int compareToKey(ProductSort sort, int row, Object key) {
+        return switch (sort) {
+            case PRICE -> compareNullable(prices[row], (Double) key);
+            case AVERAGE_RATING -> compareNullable(ratings[row], (Double) key);
+            case CREATED_AT -> Long.compare(createdAt[row], (Long) key);
+            case NAME -> compareNullable(names[row], (String) key);
+        };
+    }
+
+    private Object keyOf(ProductSort sort, int row) {
+        return switch (sort) {
+            case PRICE -> prices[row];
+            case AVERAGE_RATING -> ratings[row];
+            case CREATED_AT -> createdAt[row];
+            case NAME -> names[row];
+        };
+    }
+
+    private static Object keyOf(ProductSort sort, ProductCardDTO card) {
+        return switch (sort) {
+            case PRICE -> toDouble(card.getPrice());
+            case AVERAGE_RATING -> toDouble(card.getAverageRating());
+            case CREATED_AT -> toMicros(card.getCreatedAt());
+            case NAME -> card.getName();
+        };
+    }
+
+    private static Object cursorKey(ProductSort sort, Comparable<?> value) {
+        return switch (sort) {
+            case PRICE -> toDouble((Double) value);
+            case AVERAGE_RATING -> toDouble((Double) value);
+            case CREATED_AT -> toMicros((LocalDateTime) value);
+            case NAME -> value;
+        };
+    }
+
+    private static int compareNullable(double a, double b) {
+        if (Double.isNaN(a) || Double.isNaN(b)) {
+            return Boolean.compare(!Double.isNaN(a), !Double.isNaN(b));
+        }
+        return Double.compare(a, b);
+    }
+
+    private static int compareNullable(String a, String b) {
+        if (a == null || b == null) {
+            return Boolean.compare(a != null, b != null);
+        }
+        return NAME_COLLATOR.compare(a, b);
+    }
+
+    private static Collator nameCollator() {
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        return collator;
+    }
+
+    private static byte flagsOf(ProductCardDTO card) {
+        byte value = 0;
+        if (Boolean.TRUE.equals(card.getIsAvailable())) {
+            value |= AVAILABLE;
+        }
+        if (Boolean.TRUE.equals(card.getIsFeatured())) {
+            value |= FEATURED;
+        }
+        return value;
+    }
+
+    private static double toDouble(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static int toInt(Integer value) {
+        return value != null ? value : NULL_INT;
+    }
+
+    // Rounded to microseconds like the database column, so event-fed rows match reloaded ones
+    private static long toMicros(LocalDateTime value) {
+        if (value == null) {
+            return NULL_TIME;
+        }
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + (value.getNano() + 500) / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    @Override
+    protected CatalogSnapshot clone() {
+        try {
+            return (CatalogSnapshot) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Builds the next version. Not thread-safe; callers serialize edits and publish the
+     * result of {@link #publish()} through a volatile reference.
+     */
+    static final class Editor {
+
+        private final CatalogSnapshot base;
+        private final CatalogSnapshot next;
+        private final Set<Column> copied = EnumSet.noneOf(Column.class);
+        // Inserts below the highest id cannot be appended; they force an in-memory rebuild
+        private Map<Long, ProductCardDTO> outOfOrder;
+
+        private Editor(CatalogSnapshot base) {
+            this.base = base;
+            this.next = base.clone();
+        }
+
+        void upsert(ProductCardDTO card) {
+            if (outOfOrder != null && outOfOrder.containsKey(card.getId())) {
+                outOfOrder.put(card.getId(), card);
+                return;
+            }
+            next.brandDict = next.brandDict.with(card.getBrand());
+            next.unitDict = next.unitDict.with(card.getUnit());
+            next.categoryDict = next.categoryDict.with(card.getCategoryId(), card.getCategoryName());
+            next.vendorDict = next.vendorDict.with(card.getVendorId(), card.getVendorStoreName());
+
+            int row = next.rowOf(card.getId());
+            if (row >= 0 && (next.flags[row] & DELETED) == 0) {
+                update(row, card);
+            } else if (row < 0 && (next.size == 0 || card.getId() > next.ids[next.size - 1])) {
+                append(card);
+            } else if (row < 0) {
+                if (outOfOrder == null) {
+                    outOfOrder = new LinkedHashMap<>();
+                }
+                outOfOrder.put(card.getId(), card);
+            }
+        }
+
+        void delete(long id) {
+            if (outOfOrder != null && outOfOrder.remove(id) != null) {
+                return;
+            }
+            int row = next.rowOf(id);
+            if (row < 0 || (next.flags[row] & DELETED) != 0) {
+                return;
+            }
+            byte[] flags = cow(Column.FLAGS, next.flags);
+            next.flags = flags;
+            if ((flags[row] & AVAILABLE) != 0) {
+                next.availableCount--;
+            }
+            flags[row] |= DELETED;
+            next.liveCount--;
+            next.deletedCount++;
+        }
+
+        // Every card of the category shows the new name; a category without products is ignored
+        void renameCategory(long categoryId, String name) {
+            if (next.categoryDict.codeOf(categoryId) != NO_CODE) {
+                next.categoryDict = next.categoryDict.with(categoryId, name);
+            }
+        }
+
+        void renameVendor(long vendorId, String storeName) {
+            if (next.vendorDict.codeOf(vendorId) != NO_CODE) {
+                next.vendorDict = next.vendorDict.with(vendorId, storeName);
+            }
+        }
+
+        CatalogSnapshot publish() {
+            long version = base.version + 1;
+            if (outOfOrder != null || (next.deletedCount > 64 && next.deletedCount > next.size / 4)) {
+                List<ProductCardDTO> cards = next.findAll(null);
+                if (outOfOrder != null) {
+                    cards.addAll(outOfOrder.values());
+                }
+                return build(cards, version);
+            }
+            next.version = version;
+            return next;
+        }
+
+        private void append(ProductCardDTO card) {
+            if (next.size == next.ids.length) {
+                next.grow();
+                copied.addAll(EnumSet.complementOf(EnumSet.of(Column.ORDERS)));
+            }
+            // Slots at or beyond base.size are invisible to published snapshots, so shared arrays are safe
+            int row = next.size;
+            next.writeRow(row, card);
+            next.size++;
+            next.liveCount++;
+            if ((next.flags[row] & AVAILABLE) != 0) {
+                next.availableCount++;
+            }
+            for (ProductSort sort : SORTS) {
+                setOrder(sort, insert(sort, next.orders[sort.ordinal()], row));
+            }
+        }
+
+        private void update(int row, ProductCardDTO card) {
+            List<ProductSort> moved = new ArrayList<>(SORTS.length);
+            for (ProductSort sort : SORTS) {
+                if (next.compareToKey(sort, row, keyOf(sort, card)) != 0) {
+                    int[] order = next.orders[sort.ordinal()];
+                    setOrder(sort, remove(order, indexOf(sort, order, row)));
+                    moved.add(sort);
+                }
+            }
+
+            if (!Objects.equals(next.names[row], card.getName())) {
+                next.names = cow(Column.NAMES, next.names);
+                next.names[row] = card.getName();
+            }
+            if (!Objects.equals(next.imageUrls[row], card.getImageUrl())) {
+                next.imageUrls = cow(Column.IMAGE_URLS, next.imageUrls);
+                next.imageUrls[row] = card.getImageUrl();
+            }
+            int brand = next.brandDict.codeOf(card.getBrand());
+            if (next.brands[row] != brand) {
+                next.brands = cow(Column.BRANDS, next.brands);
+                next.brands[row] = brand;
+            }
+            int unit = next.unitDict.codeOf(card.getUnit());
+            if (next.units[row] != unit) {
+                next.units = cow(Column.UNITS, next.units);
+                next.units[row] = unit;
+            }
+            double price = toDouble(card.getPrice());
+            if (Double.compare(next.prices[row], price) != 0) {
+                next.prices = cow(Column.PRICES, next.prices);
+                next.prices[row] = price;
+            }
+            double discount = toDouble(card.getDiscount());
+            if (Double.compare(next.discounts[row], discount) != 0) {
+                next.discounts = cow(Column.DISCOUNTS, next.discounts);
+                next.discounts[row] = discount;
+            }
+            int stock = toInt(card.getStock());
+            if (next.stock[row] != stock) {
+                next.stock = cow(Column.STOCK, next.stock);
+                next.stock[row] = stock;
+            }
+            double rating = toDouble(card.getAverageRating());
+            if (Double.compare(next.ratings[row], rating) != 0) {
+                next.ratings = cow(Column.RATINGS, next.ratings);
+                next.ratings[row] = rating;
+            }
+            int reviewCount = toInt(card.getReviewCount());
+            if (next.reviewCounts[row] != reviewCount) {
+                next.reviewCounts = cow(Column.REVIEW_COUNTS, next.reviewCounts);
+                next.reviewCounts[row] = reviewCount;
+            }
+            int category = next.categoryDict.codeOf(card.getCategoryId());
+            if (next.categories[row] != category) {
+                next.categories = cow(Column.CATEGORIES, next.categories);
+                next.categories[row] = category;
+            }
+            int vendor = next.vendorDict.codeOf(card.getVendorId());
+            if (next.vendors[row] != vendor) {
+                next.vendors = cow(Column.VENDORS, next.vendors);
+                next.vendors[row] = vendor;
+            }
+            long created = toMicros(card.getCreatedAt());
+            if (next.createdAt[row] != created) {
+                next.createdAt = cow(Column.CREATED_AT, next.createdAt);
+                next.createdAt[row] = created;
+            }
+            byte newFlags = flagsOf(card);
+            byte oldFlags = next.flags[row];
+            if (oldFlags != newFlags) {
+                next.flags = cow(Column.FLAGS, next.flags);
+                next.flags[row] = newFlags;
+                next.availableCount += (newFlags & AVAILABLE) - (oldFlags & AVAILABLE);
+            }
+
+            for (ProductSort sort : moved) {
+                setOrder(sort, insert(sort, next.orders[sort.ordinal()], row));
+            }
+        }
+
+        private int indexOf(ProductSort sort, int[] order, int row) {
+            int lo = 0;
+            int hi = order.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = next.compareRows(sort, order[mid], row);
+                if (cmp < 0) {
+                    lo = mid + 1;
+                } else if (cmp > 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            throw new IllegalStateException("Row " + row + " missing from " + sort + " order");
+        }
+
+        private int[] insert(ProductSort sort, int[] order, int row) {
+            int lo = 0;
+            int hi = order.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (next.compareRows(sort, order[mid], row) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            int[] result = new int[order.length + 1];
+            System.arraycopy(order, 0, result, 0, lo);
+            result[lo] = row;
+            System.arraycopy(order, lo, result, lo + 1, order.length - lo);
+            return result;
+        }
+
+        private static int[] remove(int[] order, int index) {
+            int[] result = new int[order.length - 1];
+            System.arraycopy(order, 0, result, 0, index);
+            System.arraycopy(order, index + 1, result, index, order.length - index - 1);
+            return result;
+        }
+
+        private void setOrder(ProductSort sort, int[] order) {
+            if (copied.add(Column.ORDERS)) {
+                next.orders = next.orders.clone();
+            }
+            next.orders[sort.ordinal()] = order;
+        }
+
+        private String[] cow(Column column, String[] values) {
+            return copied.add(column) ? values.clone() : values;
+        }
+
+        private int[] cow(Column column, int[] values) {
+            return copied.add(column) ? values.clone() : values;
+        }
+
+        private long[] cow(Column column, long[] values) {
+            return copied.add(column) ? values.clone() : values;
+        }
+
+        private double[] cow(Column column, double[] values) {
+            return copied.add(column) ? values.clone() : values;
+        }
+
+        private byte[] cow(Column column, byte[] values) {
+            return copied.add(column) ? values.clone() : values;
+        }
+    }
+
+    // Immutable string dictionary; values are only ever appended
+    private static final class Dictionary {
+        final String[] values;
+        final Map<String, Integer> codes;
+
+        private Dictionary(String[] values, Map<String, Integer> codes) {
+            this.values = values;
+            this.codes = codes;
+        }
+
+        static Dictionary of(Set<String> values) {
+            List<String> list = values.stream().filter(Objects::nonNull).toList();
+            Map<String, Integer> codes = new HashMap<>();
+            for (int i = 0; i < list.size(); i++) {
+                codes.put(list.get(i), i);
+            }
+            return new Dictionary(list.toArray(new String[0]), codes);
+        }
+
+        int codeOf(String value) {
+            return value == null ? NO_CODE : codes.getOrDefault(value, NO_CODE);
+        }
+
+        Dictionary with(String value) {
+            if (value == null || codes.containsKey(value)) {
+                return this;
+            }
+            String[] grown = Arrays.copyOf(values, values.length + 1);
+            grown[values.length] = value;
+            Map<String, Integer> grownCodes = new HashMap<>(codes);
+            grownCodes.put(value, values.length);
+            return new Dictionary(grown, grownCodes);
+        }
+    }
+
+    // Immutable id -> label dictionary (category and vendor); a relabel applies to every row
+    private static final class KeyDictionary {
+        final long[] keys;
+        final String[] labels;
+        final Map<Long, Integer> codes;
+
+        private KeyDictionary(long[] keys, String[] labels, Map<Long, Integer> codes) {
+            this.keys = keys;
+            this.labels = labels;
+            this.codes = codes;
+        }
+
+        static KeyDictionary of(Map<Long, String> values) {
+            long[] keys = new long[values.size()];
+            String[] labels = new String[values.size()];
+            Map<Long, Integer> codes = new HashMap<>();
+            int code = 0;
+            for (Map.Entry<Long, String> entry : values.entrySet()) {
+                keys[code] = entry.getKey();
+                labels[code] = entry.getValue();
+                codes.put(entry.getKey(), code++);
+            }
+            return new KeyDictionary(keys, labels, codes);
+        }
+
+        int codeOf(Long key) {
+            return key == null ? NO_CODE : codes.getOrDefault(key, NO_CODE);
+        }
+
+        KeyDictionary with(Long key, String label) {
+            if (key == null) {
+                return this;
+            }
+            Integer code = codes.get(key);
+            if (code != null) {
+                if (Objects.equals(labels[code], label)) {
+                    return this;
+                }
+                String[] relabelled = labels.clone();
+                relabelled[code] = label;
+                return new KeyDictionary(keys, relabelled, codes);
+            }
+            long[] grownKeys = Arrays.copyOf(keys, keys.length + 1);
+            String[] grownLabels = Arrays.copyOf(labels, labels.length + 1);
+            grownKeys[keys.length] = key;
+            grownLabels[labels.length] = label;
+            Map<Long, Integer> grownCodes = new HashMap<>(codes);
+            grownCodes.put(key, keys.length);
+            return new KeyDictionary(grownKeys, grownLabels, grownCodes);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.dto.ProductCursor;
+import com.example.demo.dto.ProductFilter;
+import com.example.demo.dto.ProductSort;
+import com.example.demo.event.CatalogLabelChangedEvent;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Holds the current {@link CatalogSnapshot}. Readers take the volatile reference and
+ * never lock; product events build the next version copy-on-write and swap it in.
+ * Disable with {@code product.snapshot.enabled=false} to serve listings from SQL.
+ */
+@Service
+@Slf4j
+public class CatalogSnapshotService {
+
+    private static final int RELOAD_BATCH = 1000;
+
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+
+    private volatile CatalogSnapshot snapshot;
+
+    public CatalogSnapshotService(ProductRepository productRepository,
+                                  @Value("${product.snapshot.enabled:true}") boolean enabled) {
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<ProductCardDTO> findPage(ProductFilter filter, ProductSort sort, Sort.Direction direction,
+                                         ProductCursor after, int limit) {
+        return current().find(filter, sort, direction, after, limit);
+    }
+
+    public List<ProductCardDTO> findAll() {
+        return current().findAll(null);
+    }
+
+    public List<ProductCardDTO> findByVendor(Long vendorId) {
+        return current().findAll(vendorId);
+    }
+
+    public long count() {
+        return current().countLive();
+    }
+
+    public long countAvailable() {
+        return current().countAvailable();
+    }
+
+    public long getVersion() {
+        return current().getVersion();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) {
+            current();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (snapshot == null) {
+            return;
+        }
+        CatalogSnapshot.Editor editor = snapshot.edit();
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            editor.delete(event.getProductId());
+        } else {
+            editor.upsert(ProductCardDTO.from(event.getProduct()));
+        }
+        snapshot = editor.publish();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+        if (snapshot == null || event.getProductIds().isEmpty()) {
+            return;
+        }
+        List<Long> ids = event.getProductIds();
+        List<ProductCardDTO> cards = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += RELOAD_BATCH) {
+            cards.addAll(productRepository.findCardsByIdIn(ids.subList(from, Math.min(from + RELOAD_BATCH, ids.size()))));
+        }
+        // One new version for the whole batch
+        synchronized (this) {
+            CatalogSnapshot.Editor editor = snapshot.edit();
+            Set<Long> missing = new HashSet<>(ids);
+            for (ProductCardDTO card : cards) {
+                missing.remove(card.getId());
+                editor.upsert(card);
+            }
+            missing.forEach(editor::delete);
+            snapshot = editor.publish();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onLabelChanged(CatalogLabelChangedEvent event) {
+        if (snapshot == null) {
+            return;
+        }
+        CatalogSnapshot.Editor editor = snapshot.edit();
+        if (event.getKind() == CatalogLabelChangedEvent.Kind.CATEGORY) {
+            editor.renameCategory(event.getId(), event.getName());
+        } else {
+            editor.renameVendor(event.getId(), event.getName());
+        }
+        snapshot = editor.publish();
+    }
+
+    public synchronized void reload() {
+        long version = snapshot != null ? snapshot.getVersion() + 1 : 1;
+        List<ProductCardDTO> cards = productRepository.findAllCards();
+        snapshot = CatalogSnapshot.build(cards, version);
+        log.info("Catalog snapshot v{} built: {} products", version, cards.size());
+    }
+
+    private CatalogSnapshot current() {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.service;
+
+import com.example.demo.event.CatalogLabelChangedEvent;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalog-wide version used to validate list responses. Any committed product
+ * change bumps it, which invalidates every list ETag at once. So does a change to a
+ * category or vendor name, which list bodies show on every product card.
+ */
+@Component
+public class CatalogVersion {
+
+    // Distinguishes versions across restarts, since the counter itself starts from zero
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = System.currentTimeMillis();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLabelChanged(CatalogLabelChangedEvent event) {
+        bump();
+    }
+
+    public void bump() {
+        version.incrementAndGet();
+        lastModified = System.currentTimeMillis();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    // Weak: list bodies are semantically, not byte-for-byte, tied to the version
+    public String eTag() {
+        return "W/\"c" + epoch + "-" + version.get() + "\"";
+    }
+
+    // For bodies that also depend on state changing at {@code changedAt}, besides the catalog
+    public String eTag(long changedAt) {
+        return "W/\"c" + epoch + "-" + version.get() + "-" + Long.toString(changedAt, 36) + "\"";
+    }
+}
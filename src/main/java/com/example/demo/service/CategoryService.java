@@ -0,0 +1,219 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CategoryDTO;
+import com.example.demo.entity.Category;
+import com.example.demo.event.CatalogLabelChangedEvent;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.repository.CategoryRepository;
+import com.example.demo.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Categories with their available-product counts, served from an in-memory snapshot.
+ * Counts are kept per product (productId -> categoryId for available products) so every
+ * product event can move exactly one product between categories without a COUNT query.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CategoryService {
+
+    private static final int RELOAD_BATCH = 1000;
+
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Guarded by this
+    private final Map<Long, Category> categories = new HashMap<>();
+    private final Map<Long, Long> availableProductCategory = new HashMap<>();
+    private final Map<Long, Long> counts = new HashMap<>();
+    private boolean loaded;
+
+    // Rebuilt lazily after any change; null means stale
+    private volatile Snapshot snapshot;
+
+    public List<CategoryDTO> getAllCategories() {
+        return currentSnapshot().list;
+    }
+
+    public CategoryDTO getCategoryById(Long id) {
+        CategoryDTO category = currentSnapshot().byId.get(id);
+        if (category == null) {
+            throw new RuntimeException("Category not found");
+        }
+        return category;
+    }
+
+    public boolean existsById(Long id) {
+        return currentSnapshot().byId.containsKey(id);
+    }
+
+    public CategoryDTO createCategory(Category category) {
+        if (categoryRepository.existsByName(category.getName())) {
+            throw new RuntimeException("Category already exists");
+        }
+        category.setId(null);
+        Category saved = categoryRepository.save(category);
+        synchronized (this) {
+            categories.put(saved.getId(), saved);
+            snapshot = null;
+        }
+        return getCategoryById(saved.getId());
+    }
+
+    public CategoryDTO updateCategory(Long id, Category categoryData) {
+        Category existing = categoryRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Category not found"));
+
+        boolean renamed = categoryData.getName() != null && !categoryData.getName().equals(existing.getName());
+        if (renamed) {
+            if (categoryRepository.existsByName(categoryData.getName())) {
+                throw new RuntimeException("Category already exists");
+            }
+            existing.setName(categoryData.getName());
+        }
+        if (categoryData.getDescription() != null) existing.setDescription(categoryData.getDescription());
+        if (categoryData.getImageUrl() != null) existing.setImageUrl(categoryData.getImageUrl());
+
+        Category saved = categoryRepository.save(existing);
+        synchronized (this) {
+            categories.put(saved.getId(), saved);
+            snapshot = null;
+        }
+        if (renamed) {
+            eventPublisher.publishEvent(CatalogLabelChangedEvent.category(saved.getId(), saved.getName()));
+        }
+        return getCategoryById(saved.getId());
+    }
+
+    public void deleteCategory(Long id) {
+        if (!categoryRepository.existsById(id)) {
+            throw new RuntimeException("Category not found");
+        }
+        if (productRepository.existsByCategoryId(id)) {
+            throw new RuntimeException("Category still has products");
+        }
+        categoryRepository.deleteById(id);
+        synchronized (this) {
+            categories.remove(id);
+            counts.remove(id);
+            snapshot = null;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        currentSnapshot();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Long categoryId = null;
+        if (event.getProduct() != null
+                && Boolean.TRUE.equals(event.getProduct().getIsAvailable())
+                && event.getProduct().getCategory() != null) {
+            categoryId = event.getProduct().getCategory().getId();
+        }
+        synchronized (this) {
+            if (loaded) {
+                move(event.getProductId(), categoryId);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+        List<Long> ids = event.getProductIds();
+        Map<Long, Long> current = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += RELOAD_BATCH) {
+            List<Long> batch = ids.subList(from, Math.min(from + RELOAD_BATCH, ids.size()));
+            for (Object[] pair : productRepository.findAvailableCategoryPairsByIdIn(batch)) {
+                current.put((Long) pair[0], (Long) pair[1]);
+            }
+        }
+        synchronized (this) {
+            if (loaded) {
+                new HashSet<>(ids).forEach(productId -> move(productId, current.get(productId)));
+            }
+        }
+    }
+
+    public synchronized void reload() {
+        categories.clear();
+        availableProductCategory.clear();
+        counts.clear();
+
+        categoryRepository.findAll().forEach(category -> categories.put(category.getId(), category));
+        for (Object[] pair : productRepository.findAvailableCategoryPairs()) {
+            move((Long) pair[0], (Long) pair[1]);
+        }
+        loaded = true;
+        snapshot = null;
+        log.info("Category counts loaded: {} categories, {} available products",
+                categories.size(), availableProductCategory.size());
+    }
+
+    // Reassigns one product; a null categoryId means it no longer counts anywhere
+    private void move(Long productId, Long categoryId) {
+        Long previous = categoryId != null
+                ? availableProductCategory.put(productId, categoryId)
+                : availableProductCategory.remove(productId);
+        if (previous != null && previous.equals(categoryId)) {
+            return;
+        }
+        if (previous != null) {
+            counts.merge(previous, -1L, (a, b) -> a + b == 0 ? null : a + b);
+        }
+        if (categoryId != null) {
+            counts.merge(categoryId, 1L, Long::sum);
+        }
+        if (previous != null || categoryId != null) {
+            snapshot = null;
+        }
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                reload();
+            }
+            if (snapshot == null) {
+                snapshot = new Snapshot(categories.values().stream()
+                        .sorted(Comparator.comparing(Category::getName, String.CASE_INSENSITIVE_ORDER))
+                        .map(category -> CategoryDTO.from(category, counts.getOrDefault(category.getId(), 0L)))
+                        .toList());
+            }
+            return snapshot;
+        }
+    }
+
+    private static final class Snapshot {
+        final List<CategoryDTO> list;
+        final Map<Long, CategoryDTO> byId;
+
+        Snapshot(List<CategoryDTO> list) {
+            this.list = list;
+            Map<Long, CategoryDTO> index = new HashMap<>();
+            list.forEach(category -> index.put(category.getId(), category));
+            this.byId = Map.copyOf(index);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.service;
+
+/**
+ * Count-min sketch over long keys with multiplicative decay. Each of {@code depth} rows
+ * hashes a key to one of {@code width} cells; the estimate is the smallest of its cells,
+ * so it never undercounts and collisions can only inflate it. Updates are conservative
+ * (cells are raised only as far as the new estimate), which keeps that inflation small.
+ * <p>
+ * Not thread-safe; the owner serialises access.
+ */
+final class DecayingCountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private final int depth;
+    private final int mask;
+    private final double[][] rows;
+    private final int[] cells;
+
+    DecayingCountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("Sketch depth must be between 1 and " + SEEDS.length);
+        }
+        if (width < 1 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Sketch width must be a power of two");
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.rows = new double[depth][width];
+        this.cells = new int[depth];
+    }
+
+    /** Adds {@code weight} to the key and returns its new estimate. */
+    double add(long key, double weight) {
+        double estimate = Double.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            cells[row] = index(key, row);
+            estimate = Math.min(estimate, rows[row][cells[row]]);
+        }
+        double updated = estimate + weight;
+        for (int row = 0; row < depth; row++) {
+            if (rows[row][cells[row]] < updated) {
+                rows[row][cells[row]] = updated;
+            }
+        }
+        return updated;
+    }
+
+    /** Scales every count by {@code factor} (between 0 and 1), ageing old hits uniformly. */
+    void decay(double factor) {
+        for (double[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] *= factor;
+            }
+        }
+    }
+
+    private int index(long key, int row) {
+        long h = (key ^ SEEDS[row]) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 29;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.StoredImage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed image store on the local disk. An upload is streamed to a temporary
+ * file while its SHA-256 is computed, then renamed to {@code <hash>.<ext>}; identical
+ * bytes map to the same file, so re-uploads cost nothing. Stored files never change,
+ * which lets them be served with immutable caching.
+ * <p>
+ * Layout under {@code image.store.dir}: {@code originals/ab/<hash>.<ext>} and
+ * {@code thumbs/<width>/ab/<hash>.<ext>}, where {@code ab} is the first hash byte.
+ */
+@Service
+@Slf4j
+public class ImageStore {
+
+    public static final String URL_PREFIX = "/api/images/";
+    public static final int[] THUMBNAIL_WIDTHS = {160, 480};
+
+    private static final Pattern NAME = Pattern.compile("([0-9a-f]{64})\\.([a-z]+)");
+
+    private final Path root;
+    private final long maxBytes;
+    private final ImageThumbnailer thumbnailer;
+
+    public ImageStore(@Value("${image.store.dir:uploads/images}") String dir,
+                      @Value("${image.store.max-size:10MB}") DataSize maxSize,
+                      ImageThumbnailer thumbnailer) {
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        this.maxBytes = maxSize.toBytes();
+        this.thumbnailer = thumbnailer;
+    }
+
+    public StoredImage store(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input);
+        Type type = Type.sniff(buffered);
+
+        Path tmpDir = Files.createDirectories(root.resolve("tmp"));
+        Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = buffered.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new IllegalArgumentException("Image is larger than " + maxBytes + " bytes");
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String name = hash + "." + type.extension;
+            Path original = originalPath(hash, type);
+            boolean created = !Files.exists(original);
+            if (created) {
+                Files.createDirectories(original.getParent());
+                // A concurrent upload of the same bytes renames an identical file over it
+                Files.move(tmp, original, StandardCopyOption.ATOMIC_MOVE);
+                if (type.thumbnails) {
+                    Map<Integer, Path> targets = new LinkedHashMap<>();
+                    for (int width : THUMBNAIL_WIDTHS) {
+                        targets.put(width, thumbnailPath(hash, type, width));
+                    }
+                    thumbnailer.generate(original, type.extension, targets);
+                }
+            }
+            return new StoredImage(name, type.contentType, size, URL_PREFIX + name, created);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * The file to serve for an image name and optional thumbnail width. When the thumbnail
+     * is not written yet (or cannot be), the original is returned with {@code exact} false.
+     */
+    public Optional<Located> locate(String name, Integer width) {
+        Matcher matcher = NAME.matcher(name);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        String hash = matcher.group(1);
+        Type type = Type.fromExtension(matcher.group(2));
+        if (type == null) {
+            return Optional.empty();
+        }
+        if (width != null && Arrays.stream(THUMBNAIL_WIDTHS).noneMatch(w -> w == width)) {
+            throw new IllegalArgumentException("Supported widths are " + Arrays.toString(THUMBNAIL_WIDTHS));
+        }
+        Path original = originalPath(hash, type);
+        if (!Files.isRegularFile(original)) {
+            return Optional.empty();
+        }
+        if (width == null) {
+            return Optional.of(new Located(original, type.contentType, "\"" + hash + "\"", true));
+        }
+        Path thumbnail = thumbnailPath(hash, type, width);
+        if (Files.isRegularFile(thumbnail)) {
+            return Optional.of(new Located(thumbnail, type.contentType, "\"" + hash + "-" + width + "\"", true));
+        }
+        return Optional.of(new Located(original, type.contentType, "\"" + hash + "\"", false));
+    }
+
+    private Path originalPath(String hash, Type type) {
+        return root.resolve("originals").resolve(hash.substring(0, 2)).resolve(hash + "." + type.extension);
+    }
+
+    private Path thumbnailPath(String hash, Type type, int width) {
+        return root.resolve("thumbs").resolve(String.valueOf(width))
+                .resolve(hash.substring(0, 2)).resolve(hash + "." + type.extension);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static final class Located {
+        public final Path path;
+        public final String contentType;
+        public final String eTag;
+        // False when the original stands in for a thumbnail that is not ready
+        public final boolean exact;
+
+        Located(Path path, String contentType, String eTag, boolean exact) {
+            this.path = path;
+            this.contentType = contentType;
+            this.eTag = eTag;
+            this.exact = exact;
+        }
+    }
+
+    // Detected from the leading bytes; the client-declared content type is not trusted
+    private enum Type {
+        JPEG("image/jpeg", "jpg", true),
+        PNG("image/png", "png", true),
+        GIF("image/gif", "gif", true),
+        WEBP("image/webp", "webp", false); // no decoder in the JDK, served as uploaded
+
+        final String contentType;
+        final String extension;
+        final boolean thumbnails;
+
+        Type(String contentType, String extension, boolean thumbnails) {
+            this.contentType = contentType;
+            this.extension = extension;
+            this.thumbnails = thumbnails;
+        }
+
+        static Type fromExtension(String extension) {
+            for (Type type : values()) {
+                if (type.extension.equals(extension)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        static Type sniff(BufferedInputStream input) throws IOException {
+            input.mark(12);
+            byte[] head = input.readNBytes(12);
+            input.reset();
+            if (head.length >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+                return JPEG;
+            }
+            if (head.length >= 8 && Arrays.equals(head, 0, 8,
+                    new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}, 0, 8)) {
+                return PNG;
+            }
+            String ascii = new String(head, StandardCharsets.ISO_8859_1);
+            if (ascii.startsWith("GIF87a") || ascii.startsWith("GIF89a")) {
+                return GIF;
+            }
+            if (head.length == 12 && ascii.startsWith("RIFF") && ascii.endsWith("WEBP")) {
+                return WEBP;
+            }
+            throw new IllegalArgumentException("Unsupported image type; use JPEG, PNG, GIF or WebP");
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.example.demo.service;
 
 import com.example.demo.entity.*;
+import com.example.demo.event.ProductChangedEvent;
 import com.example.demo.repository.AddressRepository;
 import com.example.demo.repository.CartRepository;
 import com.example.demo.repository.OrderRepository;
 import com.example.demo.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +25,7 @@ public class OrderService {
     private final AddressRepository addressRepository;
     private final CartService cartService;
     private final DirectEmailService directEmailService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired(required = false)
     private OrderNotificationProducer orderNotificationProducer;
@@ -34,7 +37,7 @@ public class OrderService {
             throw new RuntimeException("Address ID is required. Please select a delivery address.");
         }
 
-        List<CartItem> cartItems = cartService.getCartItems(user);
+        List<CartItem> cartItems = cartService.getCartItemsForCheckout(user);
         if (cartItems.isEmpty()) {
             throw new RuntimeException("Cart is empty");
         }
@@ -79,6 +82,7 @@ public class OrderService {
             // Update product stock
             product.setStock(product.getStock() - cartItem.getQuantity());
             productRepository.save(product);
+            eventPublisher.publishEvent(ProductChangedEvent.of(product, ProductChangedEvent.Type.STOCK_CHANGED));
 
             totalAmount += product.getPrice() * cartItem.getQuantity();
         }
@@ -125,23 +129,28 @@ public class OrderService {
         return savedOrder;
     }
 
+    @Transactional(readOnly = true)
     public List<Order> getUserOrders(User user) {
         return orderRepository.findByUserOrderByOrderDateDesc(user);
     }
 
+    @Transactional(readOnly = true)
     public List<Order> getOrdersByUser(User user) {
         return getUserOrders(user);
     }
 
+    // Stays on the primary: payment and status updates read an order right after it is written
     public Order getOrderById(Long orderId) {
         return orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
     }
 
+    @Transactional(readOnly = true)
     public List<Order> getAllOrders() {
         return orderRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public List<Order> getOrdersByStatus(OrderStatus status) {
         return orderRepository.findByOrderStatusOrderByOrderDateDesc(status);
     }
@@ -240,6 +249,7 @@ public class OrderService {
             Product product = item.getProduct();
             product.setStock(product.getStock() + item.getQuantity());
             productRepository.save(product);
+            eventPublisher.publishEvent(ProductChangedEvent.of(product, ProductChangedEvent.Type.STOCK_CHANGED));
         }
 
         Order savedOrder = orderRepository.save(order);
@@ -0,0 +1,115 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductBulkUpdate;
+import com.example.demo.dto.ProductBulkUpdateResult;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies price/stock/availability deltas to many products at once, e.g. from a nightly
+ * ERP sync. All rows go through one parameterised UPDATE sent as JDBC batches inside a
+ * single transaction, instead of loading and saving each entity.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductBulkUpdateService {
+
+    private static final int BATCH_SIZE = 500;
+
+    // COALESCE keeps the current value for fields the caller left null
+    private static final String UPDATE_SQL = "UPDATE products SET " +
+            "price = COALESCE(?, price), " +
+            "stock = COALESCE(?, stock), " +
+            "is_available = COALESCE(?, is_available), " +
+            "updated_at = ? " +
+            "WHERE id = ?";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // vendorId restricts the update to that vendor's products; null means admin (any product)
+    @Transactional
+    public ProductBulkUpdateResult updateProducts(Long vendorId, List<ProductBulkUpdate> updates) {
+        ProductBulkUpdateResult result = new ProductBulkUpdateResult();
+        result.setRequested(updates.size());
+
+        // One query for the vendor's whole catalogue instead of a lookup per row
+        Set<Long> ownedIds = vendorId != null ? productRepository.findIdsByVendorId(vendorId) : null;
+
+        List<ProductBulkUpdate> valid = new ArrayList<>(updates.size());
+        for (ProductBulkUpdate update : updates) {
+            String error = validate(update, ownedIds);
+            if (error != null) {
+                result.addError(update.getProductId(), error);
+            } else {
+                valid.add(update);
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, valid, BATCH_SIZE, (ps, update) -> {
+            ps.setObject(1, update.getPrice(), Types.DOUBLE);
+            ps.setObject(2, update.getStock(), Types.INTEGER);
+            ps.setObject(3, update.getIsAvailable(), Types.BOOLEAN);
+            ps.setTimestamp(4, now);
+            ps.setLong(5, update.getProductId());
+        });
+
+        Set<Long> changedIds = new LinkedHashSet<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Long productId = valid.get(index++).getProductId();
+                if (count == 0) {
+                    // Only reachable for admins; vendor rows were checked against ownedIds
+                    result.addError(productId, "Product not found");
+                } else {
+                    changedIds.add(productId);
+                }
+            }
+        }
+        result.setUpdated(changedIds.size());
+
+        if (!changedIds.isEmpty()) {
+            eventPublisher.publishEvent(new ProductBulkChangedEvent(new ArrayList<>(changedIds)));
+        }
+        log.info("Bulk update by {}: {} of {} rows updated",
+                vendorId != null ? "vendor " + vendorId : "admin", result.getUpdated(), result.getRequested());
+        return result;
+    }
+
+    private static String validate(ProductBulkUpdate update, Set<Long> ownedIds) {
+        if (update.getProductId() == null) {
+            return "productId is required";
+        }
+        if (update.getPrice() == null && update.getStock() == null && update.getIsAvailable() == null) {
+            return "Nothing to update";
+        }
+        if (update.getPrice() != null && update.getPrice() < 0) {
+            return "price must not be negative";
+        }
+        if (update.getStock() != null && update.getStock() < 0) {
+            return "stock must not be negative";
+        }
+        if (ownedIds != null && !ownedIds.contains(update.getProductId())) {
+            return "You can only update your own products";
+        }
+        return null;
+    }
+}
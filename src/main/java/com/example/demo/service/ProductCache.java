@@ -0,0 +1,142 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import com.example.demo.event.CatalogLabelChangedEvent;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded, read-through cache of products by id with LRU and TTL eviction.
+ * Entries are invalidated after the commit of any transaction that changed the product.
+ * <p>
+ * Cached instances are detached and shared between callers: treat them as read-only
+ * and load from the repository whenever the entity is going to be modified.
+ */
+@Component
+public class ProductCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Long, Entry> entries;
+
+    // Bumped on every invalidation so a load racing with a write never re-caches stale data
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ProductCache(@Value("${product.cache.max-size:10000}") int maxSize,
+                        @Value("${product.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.entries = new LinkedHashMap<>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > ProductCache.this.maxSize) {
+                    sizeEvictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Optional<Product> get(Long id, Function<Long, Optional<Product>> loader) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                if (now - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return Optional.of(entry.product);
+                }
+                entries.remove(id);
+                expirations.increment();
+            }
+        }
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        Optional<Product> loaded = loader.apply(id);
+        loaded.ifPresent(product -> {
+            synchronized (entries) {
+                if (generation.get() == loadGeneration) {
+                    entries.put(id, new Entry(product, now));
+                }
+            }
+        });
+        return loaded;
+    }
+
+    public void evict(Long id) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            if (entries.remove(id) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            invalidations.add(entries.size());
+            entries.clear();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        evict(event.getProductId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+        event.getProductIds().forEach(this::evict);
+    }
+
+    // Cached products hold the category and vendor they were loaded with
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLabelChanged(CatalogLabelChangedEvent event) {
+        clear();
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", Duration.ofNanos(ttlNanos).toSeconds());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("sizeEvictions", sizeEvictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private record Entry(Product product, long loadedAt) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CatalogFormat;
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+/**
+ * Writes the full catalog as CSV or NDJSON straight from a forward-only query. Rows are
+ * read as card projections (nothing enters the persistence context) and written one at
+ * a time, so heap use does not grow with catalog size.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductExportService {
+
+    private static final String CSV_HEADER = "id,name,price,discount,stock,isAvailable,isFeatured," +
+            "averageRating,reviewCount,brand,unit,imageUrl,categoryId,categoryName,vendorId,vendorStoreName," +
+            "source,createdAt";
+
+    private final ProductRepository productRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    public long exportProducts(CatalogFormat format, OutputStream output) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        Long rows = readOnly.execute(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+            long count = 0;
+            try (Stream<ProductCardDTO> cards = productRepository.streamAllCards()) {
+                if (format == CatalogFormat.CSV) {
+                    writer.write(CSV_HEADER);
+                    writer.write('\n');
+                }
+                // Push the first bytes out now so clients see the download start
+                writer.flush();
+                for (ProductCardDTO card : (Iterable<ProductCardDTO>) cards::iterator) {
+                    if (format == CatalogFormat.CSV) {
+                        writeCsv(writer, card);
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(card));
+                        writer.write('\n');
+                    }
+                    count++;
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+        log.info("Exported {} products as {}", rows, format);
+        return rows != null ? rows : 0;
+    }
+
+    private static void writeCsv(Writer writer, ProductCardDTO card) throws IOException {
+        Object[] values = {
+                card.getId(), card.getName(), card.getPrice(), card.getDiscount(), card.getStock(),
+                card.getIsAvailable(), card.getIsFeatured(), card.getAverageRating(), card.getReviewCount(),
+                card.getBrand(), card.getUnit(), card.getImageUrl(), card.getCategoryId(), card.getCategoryName(),
+                card.getVendorId(), card.getVendorStoreName(), card.getVendorId() != null ? "VENDOR" : "ADMIN",
+                card.getCreatedAt()
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(csvField(values[i].toString()));
+            }
+        }
+        writer.write('\n');
+    }
+
+    // RFC 4180: quote fields containing separators, quotes or line breaks
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.FacetFilter;
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Facet index over the catalog. Each product gets a dense ordinal (assigned in id order),
+ * and every facet value keeps a compressed bitmap of the ordinals that carry it, so any
+ * filter combination is a handful of bitmap unions/intersections and facet counts are
+ * intersection cardinalities. Kept current from product change events after commit.
+ * <p>
+ * Deleted products leave dead ordinals, and events from concurrent transactions can bring a
+ * new id below the highest one; either way the ordinals are reassigned from the live entries
+ * (in memory) once enough are dead, or at once when id order is broken.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductFacetIndex {
+
+    public static final String CATEGORY = "category";
+    public static final String BRAND = "brand";
+    public static final String VENDOR = "vendor";
+    public static final String RATING = "rating";
+    public static final String PRICE = "price";
+    public static final String AVAILABLE = "available";
+    public static final String DISCOUNTED = "discounted";
+
+    // Order of Entry.values
+    private static final String[] VALUE_FACETS = {CATEGORY, BRAND, VENDOR, RATING, PRICE};
+
+    private static final double[] PRICE_EDGES = {5, 10, 25, 50, 100};
+    private static final int RELOAD_BATCH = 1000;
+    // Reassign ordinals once more than this many, and more than a quarter of them, are dead
+    private static final int MIN_DEAD_TO_COMPACT = 64;
+
+    private final ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All guarded by lock
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Map<String, RoaringBitmap>> facets = new HashMap<>();
+    private final RoaringBitmap live = new RoaringBitmap();
+    private final RoaringBitmap available = new RoaringBitmap();
+    private final RoaringBitmap discounted = new RoaringBitmap();
+    private long maxProductId = Long.MIN_VALUE;
+    private int deadOrdinals;
+    // A product was appended below the highest id, so ordinals are out of id order
+    private boolean outOfOrder;
+    private volatile boolean loaded;
+
+    /**
+     * Matching product ids, newest first, for one page, plus the total and the facet
+     * counts over the whole match set.
+     */
+    public Result search(FacetFilter filter, int offset, int limit) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = live.clone();
+            restrict(matches, CATEGORY, filter.getCategoryIds(), String::valueOf);
+            restrict(matches, BRAND, filter.getBrands(), ProductFacetIndex::brandKey);
+            restrict(matches, VENDOR, filter.getVendorIds(), String::valueOf);
+            restrict(matches, PRICE, filter.getPriceRanges(), Function.identity());
+            if (filter.getMinRating() != null) {
+                List<String> buckets = new ArrayList<>();
+                for (int bucket = Math.max(0, filter.getMinRating()); bucket <= 5; bucket++) {
+                    buckets.add(String.valueOf(bucket));
+                }
+                restrict(matches, RATING, buckets, Function.identity());
+            }
+            if (filter.isAvailableOnly()) {
+                matches.and(available);
+            }
+            if (filter.isDiscountedOnly()) {
+                matches.and(discounted);
+            }
+
+            List<Long> ids = new ArrayList<>(Math.max(0, limit));
+            IntIterator it = matches.getReverseIntIterator();
+            for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) {
+                it.next();
+            }
+            while (ids.size() < limit && it.hasNext()) {
+                ids.add(entries.get(it.next()).productId);
+            }
+
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            for (String facet : VALUE_FACETS) {
+                counts.put(facet, count(matches, facets.getOrDefault(facet, Map.of())));
+            }
+            int total = matches.getCardinality();
+            int availableCount = RoaringBitmap.andCardinality(matches, available);
+            int discountedCount = RoaringBitmap.andCardinality(matches, discounted);
+            counts.put(AVAILABLE, Map.of("true", availableCount, "false", total - availableCount));
+            counts.put(DISCOUNTED, Map.of("true", discountedCount, "false", total - discountedCount));
+
+            return new Result(ids, total, counts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            withWriteLock(() -> remove(event.getProductId()));
+        } else {
+            ProductCardDTO card = ProductCardDTO.from(event.getProduct());
+            withWriteLock(() -> upsert(card));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        List<Long> ids = event.getProductIds();
+        for (int from = 0; from < ids.size(); from += RELOAD_BATCH) {
+            List<Long> batch = ids.subList(from, Math.min(from + RELOAD_BATCH, ids.size()));
+            List<ProductCardDTO> cards = productRepository.findCardsByIdIn(batch);
+            withWriteLock(() -> {
+                Set<Long> missing = new HashSet<>(batch);
+                for (ProductCardDTO card : cards) {
+                    missing.remove(card.getId());
+                    upsert(card);
+                }
+                missing.forEach(this::remove);
+            });
+        }
+    }
+
+    public void reload() {
+        List<ProductCardDTO> cards = productRepository.findAllCards();
+        withWriteLock(() -> {
+            clear();
+            // In id order (findAllCards sorts by id), so appending keeps ordinals in id order
+            cards.forEach(this::upsert);
+            optimize();
+            loaded = true;
+        });
+        log.info("Product facet index loaded: {} products", cards.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    private void upsert(ProductCardDTO card) {
+        Integer ordinal = ordinals.get(card.getId());
+        if (ordinal != null) {
+            unindex(ordinal);
+        } else {
+            ordinal = entries.size();
+            ordinals.put(card.getId(), ordinal);
+            entries.add(null);
+            if (card.getId() < maxProductId) {
+                outOfOrder = true;
+            }
+            maxProductId = Math.max(maxProductId, card.getId());
+        }
+        index(ordinal, Entry.of(card));
+    }
+
+    private void index(int ordinal, Entry entry) {
+        entries.set(ordinal, entry);
+
+        live.add(ordinal);
+        for (int i = 0; i < VALUE_FACETS.length; i++) {
+            if (entry.values[i] != null) {
+                facets.computeIfAbsent(VALUE_FACETS[i], f -> new HashMap<>())
+                        .computeIfAbsent(entry.values[i], v -> new RoaringBitmap())
+                        .add(ordinal);
+            }
+        }
+        if (entry.available) {
+            available.add(ordinal);
+        }
+        if (entry.discounted) {
+            discounted.add(ordinal);
+        }
+    }
+
+    private void remove(Long productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal != null) {
+            unindex(ordinal);
+            entries.set(ordinal, null);
+            deadOrdinals++;
+        }
+    }
+
+    // Reassigns dense ordinals to the live entries in id order, which paging relies on
+    private void compactIfNeeded() {
+        if (!outOfOrder && (deadOrdinals <= MIN_DEAD_TO_COMPACT || deadOrdinals <= entries.size() / 4)) {
+            return;
+        }
+        List<Entry> kept = new ArrayList<>(entries.size() - deadOrdinals);
+        for (Entry entry : entries) {
+            if (entry != null) {
+                kept.add(entry);
+            }
+        }
+        kept.sort(Comparator.comparingLong(entry -> entry.productId));
+        clear();
+        for (Entry entry : kept) {
+            int ordinal = entries.size();
+            ordinals.put(entry.productId, ordinal);
+            entries.add(null);
+            index(ordinal, entry);
+            maxProductId = entry.productId;
+        }
+        optimize();
+    }
+
+    private void clear() {
+        ordinals.clear();
+        entries.clear();
+        facets.clear();
+        live.clear();
+        available.clear();
+        discounted.clear();
+        maxProductId = Long.MIN_VALUE;
+        deadOrdinals = 0;
+        outOfOrder = false;
+    }
+
+    private void optimize() {
+        facets.values().forEach(values -> values.values().forEach(RoaringBitmap::runOptimize));
+        live.runOptimize();
+        available.runOptimize();
+        discounted.runOptimize();
+    }
+
+    private void unindex(int ordinal) {
+        Entry entry = entries.get(ordinal);
+        live.remove(ordinal);
+        available.remove(ordinal);
+        discounted.remove(ordinal);
+        for (int i = 0; i < VALUE_FACETS.length; i++) {
+            if (entry.values[i] == null) {
+                continue;
+            }
+            Map<String, RoaringBitmap> values = facets.get(VALUE_FACETS[i]);
+            RoaringBitmap bitmap = values.get(entry.values[i]);
+            bitmap.remove(ordinal);
+            if (bitmap.isEmpty()) {
+                values.remove(entry.values[i]);
+            }
+        }
+    }
+
+    private <T> void restrict(RoaringBitmap matches, String facet, Collection<T> selected, Function<T, String> key) {
+        if (selected == null || selected.isEmpty()) {
+            return;
+        }
+        Map<String, RoaringBitmap> values = facets.getOrDefault(facet, Map.of());
+        RoaringBitmap union = new RoaringBitmap();
+        for (T value : selected) {
+            RoaringBitmap bitmap = value != null ? values.get(key.apply(value)) : null;
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        matches.and(union);
+    }
+
+    private static Map<String, Integer> count(RoaringBitmap matches, Map<String, RoaringBitmap> values) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+        values.forEach((value, bitmap) -> {
+            int count = RoaringBitmap.andCardinality(matches, bitmap);
+            if (count > 0) {
+                counts.add(Map.entry(value, count));
+            }
+        });
+        counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        counts.forEach(e -> result.put(e.getKey(), e.getValue()));
+        return result;
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String priceBucket(Double price) {
+        if (price == null) {
+            return null;
+        }
+        double lower = 0;
+        for (double edge : PRICE_EDGES) {
+            if (price < edge) {
+                return (long) lower + "-" + (long) edge;
+            }
+            lower = edge;
+        }
+        return (long) lower + "+";
+    }
+
+    private static String brandKey(String brand) {
+        return brand == null || brand.isBlank() ? null : brand.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static final class Result {
+        public final List<Long> ids;
+        public final int total;
+        public final Map<String, Map<String, Integer>> facets;
+
+        Result(List<Long> ids, int total, Map<String, Map<String, Integer>> facets) {
+            this.ids = ids;
+            this.total = total;
+            this.facets = facets;
+        }
+    }
+
+    // Facet values of one product, kept so an update can clear its old bits
+    private static final class Entry {
+        final long productId;
+        final String[] values;
+        final boolean available;
+        final boolean discounted;
+
+        private Entry(long productId, String[] values, boolean available, boolean discounted) {
+            this.productId = productId;
+            this.values = values;
+            this.available = available;
+            this.discounted = discounted;
+        }
+
+        static Entry of(ProductCardDTO card) {
+            double rating = card.getAverageRating() != null ? card.getAverageRating() : 0;
+            String[] values = {
+                    card.getCategoryId() != null ? String.valueOf(card.getCategoryId()) : null,
+                    brandKey(card.getBrand()),
+                    card.getVendorId() != null ? String.valueOf(card.getVendorId()) : null,
+                    String.valueOf((int) Math.min(5, Math.max(0, Math.floor(rating)))),
+                    priceBucket(card.getPrice())
+            };
+            return new Entry(card.getId(), values,
+                    Boolean.TRUE.equals(card.getIsAvailable()),
+                    card.getDiscount() != null && card.getDiscount() > 0);
+        }
+    }
+}
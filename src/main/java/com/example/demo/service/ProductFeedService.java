@@ -0,0 +1,250 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+/**
+ * Homepage feeds (featured, top rated, new arrivals) held in memory as immutable
+ * snapshots. Reads never touch the database; product change events patch the
+ * feeds in place and only fall back to a query when a ranked feed runs short.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductFeedService {
+
+    public static final int FEED_SIZE = 10;
+
+    // Ranked feeds keep extra candidates so removals rarely force a reload
+    private static final int CANDIDATES = 50;
+    private static final int RELOAD_BATCH = 1000;
+
+    private static final Comparator<ProductCardDTO> BY_RATING = Comparator
+            .comparing(ProductCardDTO::getAverageRating, Comparator.nullsFirst(Comparator.<Double>naturalOrder()))
+            .thenComparing(ProductCardDTO::getId)
+            .reversed();
+
+    private static final Comparator<ProductCardDTO> BY_NEWEST = Comparator
+            .comparing(ProductCardDTO::getCreatedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(ProductCardDTO::getId)
+            .reversed();
+
+    private final ProductRepository productRepository;
+
+    private final Map<Long, ProductCardDTO> featured = new TreeMap<>();
+    private volatile List<ProductCardDTO> featuredSnapshot = List.of();
+    private volatile boolean loaded;
+
+    private volatile RankedFeed topRated;
+    private volatile RankedFeed newest;
+
+    public List<ProductCardDTO> getFeatured() {
+        ensureLoaded();
+        return featuredSnapshot;
+    }
+
+    public List<ProductCardDTO> getTopRated() {
+        ensureLoaded();
+        return topRated.snapshot;
+    }
+
+    public List<ProductCardDTO> getNewArrivals() {
+        ensureLoaded();
+        return newest.snapshot;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!loaded) {
+            return; // the initial load will read the committed state
+        }
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            removeFeatured(event.getProductId());
+            topRated.remove(event.getProductId());
+            newest.remove(event.getProductId());
+            return;
+        }
+        apply(ProductCardDTO.from(event.getProduct()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+        if (!loaded || event.getProductIds().isEmpty()) {
+            return;
+        }
+        List<Long> ids = event.getProductIds();
+        Set<Long> missing = new HashSet<>(ids);
+        // Bulk events can carry tens of thousands of ids; keep each IN list bounded
+        for (int from = 0; from < ids.size(); from += RELOAD_BATCH) {
+            List<Long> batch = ids.subList(from, Math.min(from + RELOAD_BATCH, ids.size()));
+            for (ProductCardDTO card : productRepository.findCardsByIdIn(batch)) {
+                missing.remove(card.getId());
+                apply(card);
+            }
+        }
+        for (Long productId : missing) {
+            removeFeatured(productId);
+            topRated.remove(productId);
+            newest.remove(productId);
+        }
+    }
+
+    private void apply(ProductCardDTO card) {
+        upsertFeatured(card);
+        topRated.upsert(card);
+        newest.upsert(card);
+    }
+
+    public synchronized void reload() {
+        topRated = new RankedFeed(BY_RATING, n -> productRepository.findTopRatedCards(PageRequest.of(0, n)));
+        newest = new RankedFeed(BY_NEWEST, n -> productRepository.findNewestCards(PageRequest.of(0, n)));
+        topRated.reload();
+        newest.reload();
+
+        featured.clear();
+        productRepository.findFeaturedCards().forEach(card -> featured.put(card.getId(), card));
+        featuredSnapshot = List.copyOf(featured.values());
+
+        loaded = true;
+        log.info("Product feeds loaded: {} featured, {} top rated, {} new",
+                featuredSnapshot.size(), topRated.snapshot.size(), newest.snapshot.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    private synchronized void upsertFeatured(ProductCardDTO card) {
+        if (Boolean.TRUE.equals(card.getIsFeatured())) {
+            featured.put(card.getId(), card);
+        } else if (featured.remove(card.getId()) == null) {
+            return;
+        }
+        featuredSnapshot = List.copyOf(featured.values());
+    }
+
+    private synchronized void removeFeatured(Long productId) {
+        if (featured.remove(productId) != null) {
+            featuredSnapshot = List.copyOf(featured.values());
+        }
+    }
+
+    /**
+     * Top-N feed over an ordered candidate set. Invariant: the candidates are exactly
+     * the first {@code candidates.size()} products in feed order, or every product when
+     * {@code complete}. Dropping entries from the tail or removing one keeps that true,
+     * so only running below {@link #FEED_SIZE} requires going back to the database.
+     */
+    private static final class RankedFeed {
+        private final Comparator<ProductCardDTO> order;
+        private final IntFunction<List<ProductCardDTO>> loader;
+        private final TreeSet<ProductCardDTO> candidates;
+        private final Map<Long, ProductCardDTO> byId = new HashMap<>();
+        private boolean complete;
+        private volatile List<ProductCardDTO> snapshot = List.of();
+
+        RankedFeed(Comparator<ProductCardDTO> order, IntFunction<List<ProductCardDTO>> loader) {
+            this.order = order;
+            this.loader = loader;
+            this.candidates = new TreeSet<>(order);
+        }
+
+        synchronized void reload() {
+            List<ProductCardDTO> rows = loader.apply(CANDIDATES);
+            candidates.clear();
+            byId.clear();
+            rows.forEach(this::add);
+            complete = rows.size() < CANDIDATES;
+            publish();
+        }
+
+        synchronized void upsert(ProductCardDTO card) {
+            boolean wasCandidate = detach(card.getId());
+            boolean ranksInside = !candidates.isEmpty() && order.compare(card, candidates.last()) < 0;
+            if (!complete && !ranksInside) {
+                // Below the known window: its exact position is unknown, and it is not needed
+                if (wasCandidate) {
+                    refillOrPublish();
+                }
+                return;
+            }
+            add(card);
+            while (candidates.size() > CANDIDATES) {
+                byId.remove(candidates.pollLast().getId());
+                complete = false;
+            }
+            publish();
+        }
+
+        synchronized void remove(Long productId) {
+            if (detach(productId)) {
+                refillOrPublish();
+            }
+        }
+
+        private void add(ProductCardDTO card) {
+            candidates.add(card);
+            byId.put(card.getId(), card);
+        }
+
+        private boolean detach(Long productId) {
+            ProductCardDTO previous = byId.remove(productId);
+            if (previous == null) {
+                return false;
+            }
+            candidates.remove(previous);
+            return true;
+        }
+
+        private void refillOrPublish() {
+            if (!complete && candidates.size() < FEED_SIZE) {
+                reload();
+            } else {
+                publish();
+            }
+        }
+
+        private void publish() {
+            List<ProductCardDTO> top = new ArrayList<>(FEED_SIZE);
+            for (ProductCardDTO card : candidates) {
+                if (top.size() == FEED_SIZE) {
+                    break;
+                }
+                top.add(card);
+            }
+            snapshot = List.copyOf(top);
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CatalogFormat;
+import com.example.demo.dto.ProductImportResult;
+import com.example.demo.entity.Category;
+import com.example.demo.entity.Vendor;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.repository.CategoryRepository;
+import com.example.demo.repository.VendorRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streams a vendor catalog upload (CSV with a header row, or NDJSON) row by row and
+ * writes valid rows with JDBC batch inserts. Each chunk commits on its own, so memory
+ * stays constant and a bad row only costs that row.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductImportService {
+
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO products (name, category_id, vendor_id, price, stock, " +
+            "image_url, description, brand, unit, weight, is_available, is_featured, discount, " +
+            "average_rating, review_count, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0, ?, ?)";
+
+    private final VendorRepository vendorRepository;
+    private final CategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+
+    public ProductImportResult importProducts(Long vendorId, InputStream input, CatalogFormat format) throws IOException {
+        Vendor vendor = vendorRepository.findById(vendorId)
+                .orElseThrow(() -> new RuntimeException("Vendor not found"));
+        if (!vendor.getIsVerified()) {
+            throw new RuntimeException("Vendor must be verified to add products");
+        }
+        if (!vendor.getIsActive()) {
+            throw new RuntimeException("Vendor account is inactive");
+        }
+
+        Set<Long> categoryIds = categoryRepository.findAll().stream()
+                .map(Category::getId)
+                .collect(Collectors.toSet());
+
+        ProductImportResult result = new ProductImportResult();
+        List<ImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Iterator<Map<String, String>> records = format == CatalogFormat.NDJSON
+                    ? new NdjsonRecords(reader, objectMapper)
+                    : new CsvRecords(reader);
+
+            long rowNumber = 0;
+            while (records.hasNext()) {
+                rowNumber++;
+                result.setTotalRows(rowNumber);
+                try {
+                    chunk.add(ImportRow.parse(rowNumber, records.next(), categoryIds));
+                } catch (IllegalArgumentException e) {
+                    result.addError(rowNumber, e.getMessage());
+                    continue;
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    flush(vendorId, chunk, result);
+                }
+            }
+        }
+        flush(vendorId, chunk, result);
+
+        log.info("Vendor {} imported {} of {} rows ({} failed)",
+                vendorId, result.getImported(), result.getTotalRows(), result.getFailed());
+        return result;
+    }
+
+    private void flush(Long vendorId, List<ImportRow> chunk, ProductImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<Long> ids = transactionTemplate.execute(status -> {
+                List<Long> inserted = insertBatch(vendorId, chunk);
+                eventPublisher.publishEvent(new ProductBulkChangedEvent(inserted));
+                return inserted;
+            });
+            result.setImported(result.getImported() + (ids != null ? ids.size() : 0));
+        } catch (RuntimeException e) {
+            log.warn("Import chunk for vendor {} failed", vendorId, e);
+            chunk.forEach(row -> result.addError(row.rowNumber, "Batch insert failed: " + e.getMessage()));
+        }
+        chunk.clear();
+    }
+
+    private List<Long> insertBatch(Long vendorId, List<ImportRow> rows) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (ImportRow row : rows) {
+                    ps.setString(1, row.name);
+                    setNullable(ps, 2, row.categoryId, Types.BIGINT);
+                    ps.setLong(3, vendorId);
+                    ps.setDouble(4, row.price);
+                    ps.setInt(5, row.stock);
+                    ps.setString(6, row.imageUrl);
+                    ps.setString(7, row.description);
+                    ps.setString(8, row.brand);
+                    ps.setString(9, row.unit);
+                    setNullable(ps, 10, row.weight, Types.DOUBLE);
+                    ps.setBoolean(11, row.isAvailable);
+                    ps.setBoolean(12, false);
+                    ps.setDouble(13, row.discount);
+                    ps.setTimestamp(14, now);
+                    ps.setTimestamp(15, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                List<Long> ids = new ArrayList<>(rows.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, Object value, int sqlType)
+            throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType);
+        } else {
+            ps.setObject(index, value, sqlType);
+        }
+    }
+
+    /**
+     * One validated input row. Field names are matched case-insensitively and
+     * ignoring underscores, so both {@code categoryId} and {@code category_id} work.
+     */
+    private static final class ImportRow {
+        long rowNumber;
+        String name;
+        Long categoryId;
+        double price;
+        int stock;
+        String imageUrl;
+        String description;
+        String brand;
+        String unit;
+        Double weight;
+        boolean isAvailable;
+        double discount;
+
+        static ImportRow parse(long rowNumber, Map<String, String> fields, Set<Long> categoryIds) {
+            ImportRow row = new ImportRow();
+            row.rowNumber = rowNumber;
+
+            row.name = text(fields, "name");
+            if (row.name == null) {
+                throw new IllegalArgumentException("name is required");
+            }
+            checkLength("name", row.name, 255);
+
+            Double price = number(fields, "price");
+            if (price == null || price < 0) {
+                throw new IllegalArgumentException("price is required and must not be negative");
+            }
+            row.price = price;
+
+            Double stock = number(fields, "stock");
+            if (stock != null && (stock < 0 || stock > Integer.MAX_VALUE || stock != Math.floor(stock))) {
+                throw new IllegalArgumentException("stock must be a non-negative integer");
+            }
+            row.stock = stock == null ? 0 : stock.intValue();
+
+            Double categoryId = number(fields, "categoryid");
+            if (categoryId != null) {
+                row.categoryId = categoryId.longValue();
+                if (!categoryIds.contains(row.categoryId)) {
+                    throw new IllegalArgumentException("Category not found: " + row.categoryId);
+                }
+            }
+
+            Double discount = number(fields, "discount");
+            if (discount != null && (discount < 0 || discount > 100)) {
+                throw new IllegalArgumentException("discount must be between 0 and 100");
+            }
+            row.discount = discount == null ? 0.0 : discount;
+
+            row.description = text(fields, "description");
+            checkLength("description", row.description, 2000);
+            row.imageUrl = text(fields, "imageurl");
+            checkLength("imageUrl", row.imageUrl, 255);
+            row.brand = text(fields, "brand");
+            checkLength("brand", row.brand, 255);
+            row.unit = text(fields, "unit");
+            checkLength("unit", row.unit, 255);
+            row.weight = number(fields, "weight");
+            if (row.weight != null && row.weight < 0) {
+                throw new IllegalArgumentException("weight must not be negative");
+            }
+
+            String available = text(fields, "isavailable");
+            row.isAvailable = available == null || Boolean.parseBoolean(available);
+            return row;
+        }
+
+        private static String text(Map<String, String> fields, String key) {
+            String value = fields.get(key);
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+
+        // Column limits are checked here, since one oversized value would fail its whole chunk
+        private static void checkLength(String key, String value, int max) {
+            if (value != null && value.length() > max) {
+                throw new IllegalArgumentException(key + " is longer than " + max + " characters");
+            }
+        }
+
+        // Finite only: NaN and Infinity pass every range check and then fail in the database
+        private static Double number(Map<String, String> fields, String key) {
+            String value = text(fields, key);
+            if (value == null) {
+                return null;
+            }
+            double number;
+            try {
+                number = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(key + " is not a number: " + value);
+            }
+            if (!Double.isFinite(number)) {
+                throw new IllegalArgumentException(key + " is not a number: " + value);
+            }
+            return number;
+        }
+    }
+
+    private static String normalizeKey(String key) {
+        return key.replace("_", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * CSV records keyed by the header row. Handles quoted fields, doubled quotes
+     * and line breaks inside quotes (RFC 4180). Records are read on demand, so a record
+     * that cannot be read fails its own row: {@link #next()} throws for it.
+     */
+    static final class CsvRecords implements Iterator<Map<String, String>> {
+        private final BufferedReader reader;
+        private final List<String> header;
+        private List<String> next;
+        private IllegalArgumentException failure;
+        private boolean ended;
+
+        CsvRecords(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            List<String> columns = readRecord();
+            if (columns == null) {
+                throw new IllegalArgumentException("CSV upload is empty");
+            }
+            this.header = columns.stream().map(ProductImportService::normalizeKey).toList();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && failure == null && !ended) {
+                try {
+                    next = readRecord();
+                } catch (IllegalArgumentException e) {
+                    failure = e;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                // A failed record consumed the rest of the input
+                ended = next == null;
+            }
+            return next != null || failure != null;
+        }
+
+        @Override
+        public Map<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (failure != null) {
+                IllegalArgumentException e = failure;
+                failure = null;
+                throw e;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.size() && i < next.size(); i++) {
+                fields.put(header.get(i), next.get(i));
+            }
+            next = null;
+            return fields;
+        }
+
+        private List<String> readRecord() throws IOException {
+            String line = reader.readLine();
+            while (line != null && line.isBlank()) {
+                line = reader.readLine();
+            }
+            if (line == null) {
+                return null;
+            }
+
+            List<String> values = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                for (int i = 0; i < line.length(); i++) {
+                    char c = line.charAt(i);
+                    if (quoted) {
+                        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else if (c == '"') {
+                            quoted = false;
+                        } else {
+                            field.append(c);
+                        }
+                    } else if (c == '"') {
+                        quoted = true;
+                    } else if (c == ',') {
+                        values.add(field.toString());
+                        field.setLength(0);
+                    } else {
+                        field.append(c);
+                    }
+                }
+                if (!quoted) {
+                    break;
+                }
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IllegalArgumentException("Unterminated quoted field at end of CSV");
+                }
+                field.append('\n');
+            }
+            values.add(field.toString());
+            return values;
+        }
+    }
+
+    /**
+     * One JSON object per line. A malformed line fails its own row only.
+     */
+    private static final class NdjsonRecords implements Iterator<Map<String, String>> {
+        private final BufferedReader reader;
+        private final ObjectMapper objectMapper;
+        private String next;
+
+        NdjsonRecords(BufferedReader reader, ObjectMapper objectMapper) throws IOException {
+            this.reader = reader;
+            this.objectMapper = objectMapper;
+            this.next = readLine();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map<String, String> next() {
+            String line = next;
+            try {
+                next = readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                throw new IllegalArgumentException("Each line must be a JSON object");
+            }
+            Map<String, String> fields = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                if (!field.getValue().isNull()) {
+                    fields.put(normalizeKey(field.getKey()), field.getValue().asText());
+                }
+            });
+            return fields;
+        }
+
+        private String readLine() throws IOException {
+            String line = reader.readLine();
+            while (line != null && line.isBlank()) {
+                line = reader.readLine();
+            }
+            return line;
+        }
+    }
+}
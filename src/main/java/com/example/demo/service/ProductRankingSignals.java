@@ -0,0 +1,174 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.OrderStatus;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Per-product ranking boosts for search, recomputed in the background into an immutable
+ * table so ranking costs no database work per query. A product's boost multiplies its text
+ * relevance:
+ * <pre>
+ *   signal = 0.5 * sales + 0.3 * rating + 0.2 * discount           (each 0..1)
+ *   boost  = (1 + SIGNAL_WEIGHT * signal) * (buyable ? 1 : NOT_BUYABLE_FACTOR)
+ * </pre>
+ * {@code sales} is units sold over the last {@code product.ranking.sales-window-days}, on a
+ * log scale relative to the best seller; {@code rating} is the average rating pulled towards
+ * {@link #PRIOR_RATING} while a product has few reviews; {@code discount} saturates at
+ * {@link #MAX_DISCOUNT} percent. Out-of-stock and unavailable products are demoted, not hidden.
+ */
+@Service
+@Slf4j
+public class ProductRankingSignals {
+
+    // Relevance stays the main factor: the best possible signal doubles a score
+    static final float SIGNAL_WEIGHT = 1f;
+    static final float NOT_BUYABLE_FACTOR = 0.5f;
+
+    private static final double SALES_WEIGHT = 0.5;
+    private static final double RATING_WEIGHT = 0.3;
+    private static final double DISCOUNT_WEIGHT = 0.2;
+    // A product's rating counts as this many reviews of PRIOR_RATING on top of its own
+    private static final double PRIOR_RATING = 3.5;
+    private static final double PRIOR_REVIEWS = 5;
+    private static final double MAX_DISCOUNT = 50;
+    private static final List<OrderStatus> NOT_SOLD = List.of(OrderStatus.CANCELLED, OrderStatus.REFUNDED);
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate readOnly;
+    private final int salesWindowDays;
+
+    private volatile Table table = Table.EMPTY;
+    private volatile long refreshedAt = System.currentTimeMillis();
+
+    public ProductRankingSignals(ProductRepository productRepository,
+                                 OrderRepository orderRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${product.ranking.sales-window-days:30}") int salesWindowDays) {
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.salesWindowDays = salesWindowDays;
+        // Named in the application package so the aggregate reads run on a replica
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.readOnly.setName(ProductRankingSignals.class.getName() + ".refresh");
+    }
+
+    /** The current boosts; a snapshot, so one query ranks against one consistent table. */
+    public Table table() {
+        return table;
+    }
+
+    /** When the current table was loaded; search results may reorder at that point. */
+    public long getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refresh();
+    }
+
+    @Scheduled(initialDelayString = "${product.ranking.refresh-ms:600000}",
+            fixedDelayString = "${product.ranking.refresh-ms:600000}")
+    public void refresh() {
+        try {
+            long started = System.nanoTime();
+            Table next = readOnly.execute(status -> load());
+            if (next != null) {
+                table = next;
+                refreshedAt = System.currentTimeMillis();
+                log.info("Search ranking signals refreshed: {} products in {} ms",
+                        next.size(), (System.nanoTime() - started) / 1_000_000);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Search ranking signals refresh failed, keeping the previous ones: {}", e.getMessage());
+        }
+    }
+
+    private Table load() {
+        Map<Long, Long> unitsSold = new HashMap<>();
+        long maxUnits = 0;
+        LocalDateTime since = LocalDateTime.now().minusDays(salesWindowDays);
+        for (Object[] row : orderRepository.sumUnitsSoldByProductSince(since, NOT_SOLD)) {
+            if (row[0] == null || row[1] == null) {
+                continue;
+            }
+            long units = Math.max(0, ((Number) row[1]).longValue());
+            unitsSold.put((Long) row[0], units);
+            maxUnits = Math.max(maxUnits, units);
+        }
+        double salesScale = Math.log1p(maxUnits);
+
+        long[] ids = new long[1024];
+        float[] boosts = new float[1024];
+        int size = 0;
+        try (Stream<Object[]> rows = productRepository.streamRankingSignals()) {
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                long id = (Long) row[0];
+                long units = unitsSold.getOrDefault(id, 0L);
+                double sales = salesScale > 0 ? Math.log1p(units) / salesScale : 0;
+                double rating = rating((Double) row[1], (Integer) row[2]) / 5;
+                double discount = row[5] != null ? Math.min(Math.max((Double) row[5], 0), MAX_DISCOUNT) / MAX_DISCOUNT : 0;
+                boolean buyable = Boolean.TRUE.equals(row[4]) && row[3] != null && (Integer) row[3] > 0;
+
+                double signal = SALES_WEIGHT * sales + RATING_WEIGHT * rating + DISCOUNT_WEIGHT * discount;
+                float boost = (float) ((1 + SIGNAL_WEIGHT * signal) * (buyable ? 1 : NOT_BUYABLE_FACTOR));
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    boosts = Arrays.copyOf(boosts, size * 2);
+                }
+                ids[size] = id;
+                boosts[size] = boost;
+                size++;
+            }
+        }
+        return new Table(Arrays.copyOf(ids, size), Arrays.copyOf(boosts, size));
+    }
+
+    private static double rating(Double average, Integer reviews) {
+        int count = reviews != null ? Math.max(0, reviews) : 0;
+        double mean = average != null && count > 0 ? average : PRIOR_RATING;
+        return (mean * count + PRIOR_RATING * PRIOR_REVIEWS) / (count + PRIOR_REVIEWS);
+    }
+
+    /** Boosts by product id, in two parallel arrays sorted by id. Immutable. */
+    public static final class Table {
+
+        static final Table EMPTY = new Table(new long[0], new float[0]);
+
+        private final long[] ids;
+        private final float[] boosts;
+
+        private Table(long[] ids, float[] boosts) {
+            this.ids = ids;
+            this.boosts = boosts;
+        }
+
+        /** The boost of a product, or 1 (neutral) for one created since the last refresh. */
+        public float boost(long productId) {
+            int index = Arrays.binarySearch(ids, productId);
+            return index >= 0 ? boosts[index] : 1f;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+    }
+}
@@ -0,0 +1,886 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Product;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.en.EnglishPossessiveFilter;
+import org.apache.lucene.analysis.en.PorterStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermVectors;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DoubleValues;
+import org.apache.lucene.search.DoubleValuesSource;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.StringHelper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Full-text index over product name, brand, category and description, kept on local disk
+ * with Lucene and ranked with BM25. Misspelled words are corrected against the catalog's own
+ * words, looked up through a {@link SpellingVocabulary} kept alongside each index. Product
+ * writes are applied incrementally after commit. Result pages are cached by normalized query
+ * in a {@link SearchResultCache}; a write drops only the pages that searched one of the
+ * written product's terms.
+ * <p>
+ * Results are ordered by BM25 relevance times the product's boost from
+ * {@link ProductRankingSignals} (sales, rating, discount, stock), read from memory per hit.
+ * <p>
+ * A rebuild streams the whole catalog into a fresh index directory in the background and
+ * swaps it in atomically; searches keep using the previous index until then. Every start
+ * serves the newest index left on disk right away and rebuilds it to pick up changes made
+ * while the application was down.
+ */
+@Service
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String BRAND = "brand";
+    private static final String CATEGORY = "category";
+    private static final String DESCRIPTION = "description";
+
+    // A hit in the name outweighs the same hit in a 2000-character description
+    private static final Map<String, Float> FIELD_BOOSTS =
+            Map.of(NAME, 3f, BRAND, 2f, CATEGORY, 1.5f, DESCRIPTION, 1f);
+    // Typed-so-far matches on the last word rank below whole-word matches; not applied to
+    // descriptions, whose term dictionaries are large and rarely what is being typed
+    private static final float PREFIX_BOOST = 0.5f;
+    // Corrected words rank below anything matched as typed, closer corrections first
+    private static final float CORRECTION_BOOST = 0.3f;
+
+    // Words shorter than this are not corrected; one or two edits would turn them into anything
+    private static final int MIN_CORRECTION_LENGTH = 4;
+    // Bounds the work per misspelled word: candidates verified, corrections searched
+    private static final int MAX_CORRECTION_CANDIDATES = 50;
+    private static final int MAX_CORRECTIONS = 3;
+
+    // Term vectors give the terms a product was indexed with, to invalidate cached results by
+    private static final FieldType TEXT_TYPE = new FieldType(TextField.TYPE_NOT_STORED);
+
+    static {
+        TEXT_TYPE.setStoreTermVectors(true);
+        TEXT_TYPE.freeze();
+    }
+
+    private static final SortField NEWEST_FIRST = new SortField(ID, SortField.Type.LONG, true);
+    private static final int MAX_RESULT_WINDOW = 10_000;
+    private static final int RELOAD_BATCH = 1000;
+
+    private final ProductRepository productRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ProductRankingSignals rankingSignals;
+    private final Path root;
+    private final Analyzer analyzer = new StemmingAnalyzer();
+    private final Analyzer wordAnalyzer = new WordAnalyzer();
+    private final SearchResultCache<Result> cache;
+    // The ranking boosts the cached pages were ranked with
+    private volatile ProductRankingSignals.Table cachedRanking;
+
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-index-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    // Serialises index writes with the swap at the end of a rebuild
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Generation current;
+    // When current last changed (opened, rebuilt or closed), for HTTP validators of search results
+    private volatile long currentChangedAt = System.currentTimeMillis();
+    // Ids written while a rebuild streams the catalog; non-null only during a rebuild. Guarded by writeLock
+    private Set<Long> changedDuringRebuild;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              PlatformTransactionManager transactionManager,
+                              ProductRankingSignals rankingSignals,
+                              @Value("${product.search.index-dir:data/search-index}") String dir,
+                              @Value("${product.search.cache.max-size:5000}") int cacheSize,
+                              @Value("${product.search.cache.ttl-seconds:300}") long cacheTtlSeconds) {
+        this.productRepository = productRepository;
+        this.transactionManager = transactionManager;
+        this.rankingSignals = rankingSignals;
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+        this.cache = new SearchResultCache<>(cacheSize, TimeUnit.SECONDS.toNanos(cacheTtlSeconds));
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    /**
+     * One page of matching product ids, best match first, or null while no index has been
+     * built yet. Every word of the keyword must match in some field; the last word also
+     * matches as a prefix. A word found nowhere in the catalog is matched through its closest
+     * spellings instead, and the corrected keyword is returned as {@link Result#didYouMean}.
+     * Keywords differing only in case, spacing, accents, stop words or word endings ("Apples ",
+     * "the apple") share one cached result, until the ranking boosts are next refreshed.
+     */
+    public Result search(String keyword, int offset, int limit) {
+        ProductRankingSignals.Table ranking = rankingSignals.table();
+        if (ranking != cachedRanking) {
+            cache.clear();
+            cachedRanking = ranking;
+        }
+        // Taken before the searcher, so a write refreshing it after this point keeps the page out
+        long cacheVersion = cache.version();
+        Generation generation = current;
+        if (generation == null) {
+            return null;
+        }
+        int window = Math.min(offset + limit, MAX_RESULT_WINDOW);
+        try {
+            IndexSearcher searcher = generation.searchers.acquire();
+            try {
+                Keyword parsed = normalize(keyword, searcher.getIndexReader());
+                if (parsed == null) {
+                    return new Result(List.of(), 0, null);
+                }
+                return cache.get(new SearchResultCache.Key(parsed.key, offset, window), cacheVersion,
+                        () -> search(searcher, generation.vocabulary, ranking, parsed, offset, window));
+            } finally {
+                generation.searchers.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * When the searched generation last changed; results can differ across a change even
+     * without product writes (the first build replaces the LIKE fallback).
+     */
+    public long getLastChanged() {
+        return currentChangedAt;
+    }
+
+    /** Hit, miss and invalidation counters of the result cache. */
+    public Map<String, Object> cacheStats() {
+        return cache.stats();
+    }
+
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private SearchResultCache.Computed<Result> search(IndexSearcher searcher, SpellingVocabulary vocabulary,
+                                                      ProductRankingSignals.Table ranking,
+                                                      Keyword keyword, int offset, int window) {
+        ParsedQuery parsed = parse(keyword, vocabulary);
+        if (offset >= window) {
+            return parsed.computed(new Result(List.of(), 0, parsed.didYouMean));
+        }
+        try {
+            Sort order = new Sort(new RankedScore(ranking).getSortField(true), NEWEST_FIRST);
+            TopFieldCollector collector = TopFieldCollector.create(order, window, Integer.MAX_VALUE);
+            searcher.search(parsed.query, collector);
+            TopDocs page = collector.topDocs(offset, window - offset);
+            List<Long> ids = new ArrayList<>(page.scoreDocs.length);
+            for (ScoreDoc hit : page.scoreDocs) {
+                // The id is the tie-break sort key, so no stored fields need decompressing
+                ids.add((Long) ((FieldDoc) hit).fields[1]);
+            }
+            return parsed.computed(new Result(ids, collector.getTotalHits(), parsed.didYouMean));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Path latest = latestGeneration();
+        if (latest != null) {
+            try {
+                current = Generation.open(latest, analyzer);
+                currentChangedAt = System.currentTimeMillis();
+                log.info("Product search index opened from {}", latest);
+            } catch (IOException e) {
+                log.warn("Could not open product search index {}: {}", latest, e.getMessage());
+            }
+        }
+        requestRebuild();
+    }
+
+    /**
+     * Queues a background rebuild; a request made while one is running queues exactly one more.
+     */
+    public void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getType()) {
+            case STOCK_CHANGED, RATING_CHANGED -> {
+                // Indexed text is unchanged
+            }
+            case DELETED -> apply(List.of(event.getProductId()), List.of());
+            default -> apply(List.of(event.getProductId()), List.of(document(event.getProduct())));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+        List<Long> ids = event.getProductIds();
+        for (int from = 0; from < ids.size(); from += RELOAD_BATCH) {
+            List<Long> batch = ids.subList(from, Math.min(from + RELOAD_BATCH, ids.size()));
+            apply(batch, documents(batch));
+        }
+    }
+
+    // Searches see writes immediately (near-real-time readers); this only makes them durable
+    @Scheduled(fixedDelayString = "${product.search.commit-interval-ms:30000}")
+    public void commit() {
+        writeLock.lock();
+        try {
+            Generation generation = current;
+            if (generation != null && generation.writer.hasUncommittedChanges()) {
+                generation.writer.commit();
+            }
+        } catch (IOException e) {
+            log.warn("Product search index commit failed: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        rebuilder.shutdownNow();
+        writeLock.lock();
+        try {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        } catch (IOException e) {
+            log.warn("Closing product search index failed: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void rebuild() {
+        Path path = root.resolve(String.valueOf(System.currentTimeMillis()));
+        writeLock.lock();
+        try {
+            changedDuringRebuild = new HashSet<>();
+        } finally {
+            writeLock.unlock();
+        }
+
+        Generation next = null;
+        try {
+            next = Generation.open(path, analyzer);
+            long count = streamCatalog(next);
+
+            // Writes committed while streaming may be missing or older in the new index:
+            // re-read them, and swap under the lock so no later write goes only to the old one
+            Generation previous;
+            writeLock.lock();
+            try {
+                List<Long> changed = new ArrayList<>(changedDuringRebuild);
+                for (int from = 0; from < changed.size(); from += RELOAD_BATCH) {
+                    List<Long> batch = changed.subList(from, Math.min(from + RELOAD_BATCH, changed.size()));
+                    write(next, batch, documents(batch));
+                }
+                changedDuringRebuild = null;
+                next.writer.commit();
+                next.searchers.maybeRefresh();
+                previous = current;
+                current = next;
+                currentChangedAt = System.currentTimeMillis();
+                cache.clear();
+            } finally {
+                writeLock.unlock();
+            }
+            log.info("Product search index rebuilt: {} products", count);
+
+            if (previous != null) {
+                previous.close();
+            }
+            deleteGenerationsExcept(path);
+        } catch (Exception e) {
+            log.error("Product search index rebuild failed", e);
+            writeLock.lock();
+            try {
+                changedDuringRebuild = null;
+            } finally {
+                writeLock.unlock();
+            }
+            if (next != null && next != current) {
+                try {
+                    next.close();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+                deleteQuietly(path);
+            }
+        }
+    }
+
+    private long streamCatalog(Generation generation) {
+        // No service transaction name, so this read stays on the primary
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Long count = readOnly.execute(status -> {
+            long rows = 0;
+            try (Stream<Object[]> documents = productRepository.streamSearchDocuments()) {
+                for (Object[] row : (Iterable<Object[]>) documents::iterator) {
+                    Document document = document(row);
+                    generation.writer.addDocument(document);
+                    generation.vocabulary.put((Long) row[0], words(document));
+                    rows++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rows;
+        });
+        return count != null ? count : 0;
+    }
+
+    private void apply(List<Long> ids, List<Document> documents) {
+        writeLock.lock();
+        try {
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.addAll(ids);
+            }
+            Generation generation = current;
+            if (generation != null) {
+                // Cached pages may hold these products under their old terms or miss them under the new
+                Set<String> terms = indexedTerms(generation, ids);
+                for (Document document : documents) {
+                    for (String field : FIELD_BOOSTS.keySet()) {
+                        terms.addAll(analyze(analyzer, document.get(field)));
+                    }
+                }
+                write(generation, ids, documents);
+                generation.searchers.maybeRefresh();
+                cache.invalidate(terms);
+            }
+        } catch (IOException e) {
+            log.warn("Product search index update failed, rebuilding: {}", e.getMessage());
+            requestRebuild();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Replaces the documents of ids; ids without a document are deleted
+    private void write(Generation generation, Collection<Long> ids, List<Document> documents) throws IOException {
+        Set<String> missing = new HashSet<>();
+        ids.forEach(id -> missing.add(String.valueOf(id)));
+        for (Document document : documents) {
+            String id = document.get(ID);
+            missing.remove(id);
+            generation.writer.updateDocument(new Term(ID, id), document);
+            generation.vocabulary.put(Long.parseLong(id), words(document));
+        }
+        for (String id : missing) {
+            generation.writer.deleteDocuments(new Term(ID, id));
+            generation.vocabulary.remove(Long.parseLong(id));
+        }
+    }
+
+    // The terms the products are currently indexed with
+    private static Set<String> indexedTerms(Generation generation, Collection<Long> ids) throws IOException {
+        Set<String> terms = new HashSet<>();
+        IndexSearcher searcher = generation.searchers.acquire();
+        try {
+            TermVectors vectors = searcher.getIndexReader().termVectors();
+            for (Long id : ids) {
+                TopDocs hits = searcher.search(new TermQuery(new Term(ID, String.valueOf(id))), 1);
+                Fields fields = hits.scoreDocs.length > 0 ? vectors.get(hits.scoreDocs[0].doc) : null;
+                if (fields == null) {
+                    continue;
+                }
+                for (String field : FIELD_BOOSTS.keySet()) {
+                    Terms fieldTerms = fields.terms(field);
+                    if (fieldTerms == null) {
+                        continue;
+                    }
+                    TermsEnum it = fieldTerms.iterator();
+                    for (BytesRef term = it.next(); term != null; term = it.next()) {
+                        terms.add(term.utf8ToString());
+                    }
+                }
+            }
+        } finally {
+            generation.searchers.release(searcher);
+        }
+        return terms;
+    }
+
+    private List<Document> documents(List<Long> ids) {
+        List<Document> documents = new ArrayList<>(ids.size());
+        for (Object[] row : productRepository.findSearchDocumentsByIdIn(ids)) {
+            documents.add(document(row));
+        }
+        return documents;
+    }
+
+    private static Document document(Product product) {
+        return document(product.getId(), product.getName(), product.getDescription(), product.getBrand(),
+                product.getCategory() != null ? product.getCategory().getName() : null);
+    }
+
+    private static Document document(Object[] row) {
+        return document((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4]);
+    }
+
+    private static Document document(long id, String name, String description, String brand, String category) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(id), Field.Store.NO));
+        document.add(new NumericDocValuesField(ID, id));
+        addText(document, NAME, name);
+        addText(document, BRAND, brand);
+        addText(document, CATEGORY, category);
+        addText(document, DESCRIPTION, description);
+        return document;
+    }
+
+    // Unstemmed words of name, brand and category: the vocabulary spelling corrections come from
+    private List<String> words(Document document) {
+        List<String> words = new ArrayList<>();
+        for (String field : List.of(NAME, BRAND, CATEGORY)) {
+            words.addAll(analyze(wordAnalyzer, document.get(field)));
+        }
+        return words;
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            document.add(new Field(field, value, TEXT_TYPE));
+        }
+    }
+
+    /**
+     * The searched words of a keyword, or null when it has none. Found words are keyed by
+     * stem; a keyword with a word to correct is keyed by its words as typed, since the
+     * corrections and the suggested keyword depend on the exact spelling.
+     */
+    private Keyword normalize(String keyword, IndexReader reader) throws IOException {
+        List<String> words = analyze(wordAnalyzer, keyword);
+        if (words.isEmpty()) {
+            return null;
+        }
+        boolean prefixLast = !Character.isWhitespace(keyword.charAt(keyword.length() - 1));
+        List<String> stems = new ArrayList<>(words.size());
+        List<String> found = new ArrayList<>(words.size());
+        boolean[] missing = new boolean[words.size()];
+        boolean misspelled = false;
+        for (int i = 0; i < words.size(); i++) {
+            String stem = stem(words.get(i));
+            stems.add(stem);
+            if (stem == null) {
+                continue; // stop word
+            }
+            boolean last = prefixLast && i == words.size() - 1;
+            found.add(last ? stem + "*" : stem);
+            missing[i] = !occurs(reader, stem, last);
+            misspelled |= missing[i];
+        }
+        if (found.isEmpty()) {
+            return null;
+        }
+        String key = misspelled ? "~" + String.join(" ", words) + (prefixLast ? "*" : "") : String.join(" ", found);
+        return new Keyword(words, stems, prefixLast, missing, key);
+    }
+
+    private ParsedQuery parse(Keyword keyword, SpellingVocabulary vocabulary) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        Set<String> terms = new LinkedHashSet<>();
+        Set<String> prefixes = new LinkedHashSet<>();
+        List<String> asMeant = new ArrayList<>(keyword.words);
+        boolean corrected = false;
+        for (int i = 0; i < keyword.words.size(); i++) {
+            String stem = keyword.stems.get(i);
+            if (stem == null) {
+                continue;
+            }
+            boolean last = keyword.prefixLast && i == keyword.words.size() - 1;
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+            addMatches(anyField, stem, last, 1f);
+            terms.add(stem);
+            if (last) {
+                prefixes.add(stem);
+            }
+            List<SpellingVocabulary.Correction> corrections = keyword.missing[i]
+                    ? corrections(vocabulary, keyword.words.get(i))
+                    : List.of();
+            for (SpellingVocabulary.Correction correction : corrections) {
+                String correctedStem = stem(correction.word);
+                if (correctedStem != null) {
+                    addMatches(anyField, correctedStem, false, CORRECTION_BOOST / correction.distance);
+                    terms.add(correctedStem);
+                }
+            }
+            if (!corrections.isEmpty()) {
+                asMeant.set(i, corrections.get(0).word);
+                corrected = true;
+            }
+            query.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+        return new ParsedQuery(query.build(), corrected ? String.join(" ", asMeant) : null,
+                terms, prefixes, keyword.misspelled());
+    }
+
+    private static void addMatches(BooleanQuery.Builder anyField, String stem, boolean prefix, float boost) {
+        for (Map.Entry<String, Float> field : FIELD_BOOSTS.entrySet()) {
+            Term term = new Term(field.getKey(), stem);
+            anyField.add(new BoostQuery(new TermQuery(term), field.getValue() * boost), BooleanClause.Occur.SHOULD);
+            if (prefix && !field.getKey().equals(DESCRIPTION)) {
+                anyField.add(new BoostQuery(new PrefixQuery(term), field.getValue() * boost * PREFIX_BOOST),
+                        BooleanClause.Occur.SHOULD);
+            }
+        }
+    }
+
+    // Whether the stem (or, for the word being typed, a term starting with it) is in any field
+    private static boolean occurs(IndexReader reader, String stem, boolean prefix) throws IOException {
+        BytesRef bytes = new BytesRef(stem);
+        for (String field : FIELD_BOOSTS.keySet()) {
+            if (reader.docFreq(new Term(field, bytes)) > 0) {
+                return true;
+            }
+            if (prefix && !field.equals(DESCRIPTION)) {
+                Terms terms = MultiTerms.getTerms(reader, field);
+                if (terms != null) {
+                    TermsEnum it = terms.iterator();
+                    if (it.seekCeil(bytes) != TermsEnum.SeekStatus.END && StringHelper.startsWith(it.term(), bytes)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Catalog words within one edit of {@code word}, or two for words longer than five letters,
+     * closest and then most common first.
+     */
+    private static List<SpellingVocabulary.Correction> corrections(SpellingVocabulary vocabulary, String word) {
+        if (word.length() < MIN_CORRECTION_LENGTH) {
+            return List.of();
+        }
+        List<SpellingVocabulary.Correction> found =
+                vocabulary.corrections(word, word.length() > 5 ? 2 : 1, MAX_CORRECTION_CANDIDATES);
+        return found.size() > MAX_CORRECTIONS ? found.subList(0, MAX_CORRECTIONS) : found;
+    }
+
+    // The single search term for a word, or null for a stop word
+    private String stem(String word) {
+        List<String> terms = analyze(analyzer, word);
+        return terms.isEmpty() ? null : terms.get(0);
+    }
+
+    private static List<String> analyze(Analyzer analyzer, String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        try (TokenStream tokens = analyzer.tokenStream(NAME, text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                terms.add(term.toString());
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    // Generation directories are named by creation time; the newest complete one wins
+    private Path latestGeneration() {
+        if (!Files.isDirectory(root)) {
+            return null;
+        }
+        try (Stream<Path> dirs = Files.list(root)) {
+            return dirs.filter(dir -> dir.getFileName().toString().matches("\\d+"))
+                    .sorted(Comparator.comparingLong((Path dir) -> Long.parseLong(dir.getFileName().toString())).reversed())
+                    .filter(ProductSearchIndex::isIndex)
+                    .findFirst()
+                    .orElse(null);
+        } catch (IOException e) {
+            log.warn("Could not list {}: {}", root, e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isIndex(Path dir) {
+        try (Directory directory = FSDirectory.open(dir)) {
+            return DirectoryReader.indexExists(directory);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void deleteGenerationsExcept(Path keep) {
+        try (Stream<Path> dirs = Files.list(root)) {
+            dirs.filter(dir -> !dir.equals(keep)).forEach(ProductSearchIndex::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not clean up {}: {}", root, e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path dir) {
+        try {
+            IOUtils.rm(dir);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", dir, e.getMessage());
+        }
+    }
+
+    public static final class Result {
+        public final List<Long> ids;
+        public final long total;
+        // The keyword with misspelled words replaced, or null when every word was found as typed
+        public final String didYouMean;
+
+        Result(List<Long> ids, long total, String didYouMean) {
+            this.ids = ids;
+            this.total = total;
+            this.didYouMean = didYouMean;
+        }
+    }
+
+    // A keyword's words with their stems (null for stop words) and whether each is missing from the index
+    private static final class Keyword {
+        final List<String> words;
+        final List<String> stems;
+        final boolean prefixLast;
+        final boolean[] missing;
+        // The result cache key
+        final String key;
+
+        Keyword(List<String> words, List<String> stems, boolean prefixLast, boolean[] missing, String key) {
+            this.words = words;
+            this.stems = stems;
+            this.prefixLast = prefixLast;
+            this.missing = missing;
+            this.key = key;
+        }
+
+        boolean misspelled() {
+            for (boolean word : missing) {
+                if (word) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class ParsedQuery {
+        final Query query;
+        final String didYouMean;
+        // Searched as whole terms and as prefixes, for result cache invalidation
+        final Set<String> terms;
+        final Set<String> prefixes;
+        final boolean misspelled;
+
+        ParsedQuery(Query query, String didYouMean, Set<String> terms, Set<String> prefixes, boolean misspelled) {
+            this.query = query;
+            this.didYouMean = didYouMean;
+            this.terms = terms;
+            this.prefixes = prefixes;
+            this.misspelled = misspelled;
+        }
+
+        SearchResultCache.Computed<Result> computed(Result result) {
+            return new SearchResultCache.Computed<>(result, terms, prefixes, misspelled);
+        }
+    }
+
+    // The relevance score times the product's ranking boost, looked up by the id doc values
+    private static final class RankedScore extends DoubleValuesSource {
+        private final ProductRankingSignals.Table ranking;
+
+        RankedScore(ProductRankingSignals.Table ranking) {
+            this.ranking = ranking;
+        }
+
+        @Override
+        public DoubleValues getValues(LeafReaderContext context, DoubleValues scores) throws IOException {
+            NumericDocValues ids = DocValues.getNumeric(context.reader(), ID);
+            return new DoubleValues() {
+                private double value;
+
+                @Override
+                public double doubleValue() {
+                    return value;
+                }
+
+                @Override
+                public boolean advanceExact(int doc) throws IOException {
+                    double score = scores.advanceExact(doc) ? scores.doubleValue() : 0;
+                    value = ids.advanceExact(doc) ? score * ranking.boost(ids.longValue()) : score;
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public boolean needsScores() {
+            return true;
+        }
+
+        @Override
+        public DoubleValuesSource rewrite(IndexSearcher searcher) {
+            return this;
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext context) {
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RankedScore ranked && ranked.ranking == ranking;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(ranking);
+        }
+
+        @Override
+        public String toString() {
+            return "score*ranking";
+        }
+    }
+
+    // Lucene's EnglishAnalyzer plus accent folding, so "creme" finds "Crème"
+    private static final class StemmingAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            TokenStream result = new EnglishPossessiveFilter(source);
+            result = new LowerCaseFilter(result);
+            result = new ASCIIFoldingFilter(result);
+            result = new StopFilter(result, EnglishAnalyzer.ENGLISH_STOP_WORDS_SET);
+            return new TokenStreamComponents(source, new PorterStemFilter(result));
+        }
+    }
+
+    // Whole words, lower-cased and without accents, for the spelling vocabulary
+    private static final class WordAnalyzer extends Analyzer {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer source = new StandardTokenizer();
+            return new TokenStreamComponents(source, new ASCIIFoldingFilter(new LowerCaseFilter(source)));
+        }
+    }
+
+    // One index directory with its writer and near-real-time searchers, and the vocabulary of
+    // what was written through it (empty for an index reopened from disk until it is rebuilt)
+    private static final class Generation {
+        final Directory directory;
+        final IndexWriter writer;
+        final SearcherManager searchers;
+        final SpellingVocabulary vocabulary = new SpellingVocabulary();
+
+        private Generation(Directory directory, IndexWriter writer, SearcherManager searchers) {
+            this.directory = directory;
+            this.writer = writer;
+            this.searchers = searchers;
+        }
+
+        static Generation open(Path path, Analyzer analyzer) throws IOException {
+            Files.createDirectories(path);
+            Directory directory = FSDirectory.open(path);
+            IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+            return new Generation(directory, writer, new SearcherManager(writer, null));
+        }
+
+        void close() throws IOException {
+            IOUtils.close(searchers, writer, directory);
+        }
+    }
+}
@@ -1,45 +1,119 @@
 package com.example.demo.service;
 
-import com.example.demo.entity.Category;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.FacetFilter;
+import com.example.demo.dto.FacetedProductPage;
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.dto.ProductCursor;
+import com.example.demo.dto.ProductDetailDTO;
+import com.example.demo.dto.ProductFilter;
+import com.example.demo.dto.ProductSearchPage;
+import com.example.demo.dto.ProductSort;
+import com.example.demo.dto.SearchSuggestion;
 import com.example.demo.entity.Product;
 import com.example.demo.entity.Vendor;
+import com.example.demo.event.ProductChangedEvent;
 import com.example.demo.repository.CategoryRepository;
 import com.example.demo.repository.ProductRepository;
 import com.example.demo.repository.VendorRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final VendorRepository vendorRepository;
+    private final ProductCache productCache;
+    private final ProductFeedService productFeedService;
+    private final ProductFacetIndex productFacetIndex;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductSuggester productSuggester;
+    private final ProductRankingSignals rankingSignals;
+    private final CatalogSnapshotService catalogSnapshot;
+    private final CategoryService categoryService;
+    private final TrendingService trendingService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public List<ProductCardDTO> getAllProductCards() {
+        return catalogSnapshot.isEnabled() ? catalogSnapshot.findAll() : productRepository.findAllCards();
+    }
 
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public long countProducts() {
+        return catalogSnapshot.isEnabled() ? catalogSnapshot.count() : productRepository.count();
     }
 
-    public List<Product> getAvailableProducts() {
-        return productRepository.findByIsAvailableTrue();
+    public long countAvailableProducts() {
+        return catalogSnapshot.isEnabled()
+                ? catalogSnapshot.countAvailable()
+                : productRepository.countByIsAvailableTrue();
+    }
+
+    // Keyset-paginated listing shared by all catalog browse endpoints
+    public CursorPage<ProductCardDTO> listProducts(ProductFilter filter, ProductSort sort,
+                                            Sort.Direction direction, String cursor, int limit) {
+        if (filter.getCategoryId() != null && !categoryService.existsById(filter.getCategoryId())) {
+            throw new RuntimeException("Category not found");
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        ProductCursor after = cursor == null || cursor.isBlank()
+                ? null
+                : ProductCursor.decode(cursor, sort, direction);
+
+        // Fetch one extra row to learn whether another page exists without a COUNT query
+        List<ProductCardDTO> rows = catalogSnapshot.isEnabled()
+                ? catalogSnapshot.findPage(filter, sort, direction, after, pageSize + 1)
+                : productRepository.findPage(filter, sort, direction, after, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<ProductCardDTO> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore
+                ? ProductCursor.after(items.get(items.size() - 1), sort, direction).encode()
+                : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
+
+    // Filtering and facet counts come from the in-memory index; only the page is read from the DB
+    public FacetedProductPage searchFacets(FacetFilter filter, int offset, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        ProductFacetIndex.Result result = productFacetIndex.search(filter, Math.max(0, offset), pageSize);
+
+        return new FacetedProductPage(findCardsInOrder(result.ids), result.total, Math.max(0, offset), result.facets);
     }
 
-    public List<Product> getFeaturedProducts() {
-        return productRepository.findByIsFeaturedTrue();
+    public List<ProductCardDTO> getFeaturedProducts() {
+        return productFeedService.getFeatured();
     }
 
+    // Served from the product cache; the returned instance must not be modified
     public Product getProductById(Long id) {
-        return productRepository.findById(id)
+        return productCache.get(id, productRepository::findById)
                 .orElseThrow(() -> new RuntimeException("Product not found"));
     }
 
+    public ProductDetailDTO getProductDetail(Long id) {
+        return ProductDetailDTO.from(getProductById(id));
+    }
+
     @Transactional
     public Product createProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(saved, ProductChangedEvent.Type.CREATED));
+        return saved;
     }
 
     // Vendor creates product
@@ -57,15 +131,20 @@ public class ProductService {
         }
 
         product.setVendor(vendor);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(saved, ProductChangedEvent.Type.CREATED));
+        return saved;
     }
 
     // Get products by vendor
-    public List<Product> getProductsByVendor(Long vendorId) {
-        return productRepository.findByVendorId(vendorId);
+    public List<ProductCardDTO> getProductsByVendor(Long vendorId) {
+        return catalogSnapshot.isEnabled()
+                ? catalogSnapshot.findByVendor(vendorId)
+                : productRepository.findCardsByVendorId(vendorId);
     }
 
     // Get available products by vendor
+    @Transactional(readOnly = true)
     public List<Product> getAvailableProductsByVendor(Long vendorId) {
         Vendor vendor = vendorRepository.findById(vendorId)
                 .orElseThrow(() -> new RuntimeException("Vendor not found"));
@@ -74,7 +153,7 @@ public class ProductService {
 
     @Transactional
     public Product updateProduct(Long id, Product product) {
-        Product existingProduct = getProductById(id);
+        Product existingProduct = loadProduct(id);
         existingProduct.setName(product.getName());
         existingProduct.setCategory(product.getCategory());
         existingProduct.setPrice(product.getPrice());
@@ -87,13 +166,15 @@ public class ProductService {
         existingProduct.setIsAvailable(product.getIsAvailable());
         existingProduct.setIsFeatured(product.getIsFeatured());
         existingProduct.setDiscount(product.getDiscount());
-        return productRepository.save(existingProduct);
+        Product saved = productRepository.save(existingProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.of(saved, ProductChangedEvent.Type.UPDATED));
+        return saved;
     }
 
     // Vendor updates their own product
     @Transactional
     public Product updateProductForVendor(Long vendorId, Long productId, Product productData) {
-        Product existingProduct = getProductById(productId);
+        Product existingProduct = loadProduct(productId);
 
         // Verify product belongs to vendor
         if (existingProduct.getVendor() == null ||
@@ -113,17 +194,46 @@ public class ProductService {
         if (productData.getIsAvailable() != null) existingProduct.setIsAvailable(productData.getIsAvailable());
         if (productData.getDiscount() != null) existingProduct.setDiscount(productData.getDiscount());
 
-        return productRepository.save(existingProduct);
+        Product saved = productRepository.save(existingProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.of(saved, ProductChangedEvent.Type.UPDATED));
+        return saved;
+    }
+
+    // Throws unless the product exists and belongs to the vendor; checked before storing an upload
+    public void checkVendorOwnsProduct(Long vendorId, Long productId) {
+        Product product = getProductById(productId);
+        if (product.getVendor() == null ||
+            !product.getVendor().getId().equals(vendorId)) {
+            throw new RuntimeException("You can only update your own products");
+        }
+    }
+
+    // Vendor replaces their own product's image; nothing else about the product changes
+    @Transactional
+    public Product updateProductImageForVendor(Long vendorId, Long productId, String imageUrl) {
+        Product existingProduct = loadProduct(productId);
+
+        if (existingProduct.getVendor() == null ||
+            !existingProduct.getVendor().getId().equals(vendorId)) {
+            throw new RuntimeException("You can only update your own products");
+        }
+
+        existingProduct.setImageUrl(imageUrl);
+        Product saved = productRepository.save(existingProduct);
+        eventPublisher.publishEvent(ProductChangedEvent.of(saved, ProductChangedEvent.Type.UPDATED));
+        return saved;
     }
 
+    @Transactional
     public void deleteProduct(Long id) {
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(id));
     }
 
     // Vendor deletes their own product
     @Transactional
     public void deleteProductForVendor(Long vendorId, Long productId) {
-        Product product = getProductById(productId);
+        Product product = loadProduct(productId);
 
         if (product.getVendor() == null ||
             !product.getVendor().getId().equals(vendorId)) {
@@ -131,33 +241,72 @@ public class ProductService {
         }
 
         productRepository.deleteById(productId);
+        eventPublisher.publishEvent(ProductChangedEvent.deleted(productId));
+    }
+
+    // Write paths work on a managed entity, never on the shared cached instance
+    private Product loadProduct(Long id) {
+        return productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+    }
+
+    // Ranked by the full-text index; until its first build completes, falls back to a LIKE scan
+    // ordered by the ranking boosts alone
+    @Transactional(readOnly = true)
+    public ProductSearchPage searchProducts(String keyword, int offset, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int from = Math.max(0, offset);
+        ProductSearchIndex.Result result = productSearchIndex.search(keyword, from, pageSize);
+        if (result == null) {
+            List<ProductCardDTO> all = new ArrayList<>(productRepository.searchCardsByKeyword(keyword));
+            ProductRankingSignals.Table ranking = rankingSignals.table();
+            all.sort(Comparator.comparingDouble((ProductCardDTO card) -> ranking.boost(card.getId())).reversed());
+            List<ProductCardDTO> items = from >= all.size()
+                    ? List.of()
+                    : new ArrayList<>(all.subList(from, Math.min(from + pageSize, all.size())));
+            return new ProductSearchPage(items, all.size(), from, null);
+        }
+        return new ProductSearchPage(findCardsInOrder(result.ids), result.total, from, result.didYouMean);
+    }
+
+    // Cards for ids in the given order; ids deleted in the meantime are skipped
+    private List<ProductCardDTO> findCardsInOrder(List<Long> ids) {
+        Map<Long, ProductCardDTO> cards = ids.isEmpty()
+                ? Map.of()
+                : productRepository.findCardsByIdIn(ids).stream()
+                        .collect(Collectors.toMap(ProductCardDTO::getId, Function.identity()));
+        List<ProductCardDTO> items = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            ProductCardDTO card = cards.get(id);
+            if (card != null) {
+                items.add(card);
+            }
+        }
+        return items;
     }
 
-    public List<Product> getProductsByCategory(Long categoryId) {
-        Category category = categoryRepository.findById(categoryId)
-                .orElseThrow(() -> new RuntimeException("Category not found"));
-        return productRepository.findByCategory(category);
+    // Search results change with product writes, and also when the index or ranking boosts do
+    public long getSearchLastChanged() {
+        return Math.max(productSearchIndex.getLastChanged(), rankingSignals.getRefreshedAt());
     }
 
-    public List<Product> searchProducts(String keyword) {
-        return productRepository.searchByKeyword(keyword);
+    public List<SearchSuggestion> suggest(String prefix, int limit) {
+        return productSuggester.suggest(prefix, limit);
     }
 
-    public List<Product> getProductsByPriceRange(Double minPrice, Double maxPrice) {
-        return productRepository.findByPriceBetween(minPrice, maxPrice);
+    public List<ProductCardDTO> getTopRatedProducts() {
+        return productFeedService.getTopRated();
     }
 
-    public List<Product> filterProducts(Long categoryId, Double minPrice, Double maxPrice) {
-        Category category = categoryRepository.findById(categoryId)
-                .orElseThrow(() -> new RuntimeException("Category not found"));
-        return productRepository.findByCategoryAndPriceRange(category, minPrice, maxPrice);
+    public List<ProductCardDTO> getNewProducts() {
+        return productFeedService.getNewArrivals();
     }
 
-    public List<Product> getTopRatedProducts() {
-        return productRepository.findTop10ByOrderByAverageRatingDesc();
+    public List<ProductCardDTO> getTrendingProducts(int limit) {
+        return trendingService.getTrending(Math.max(1, Math.min(limit, TrendingService.MAX_TRENDING)));
     }
 
-    public List<Product> getNewProducts() {
-        return productRepository.findTop10ByOrderByCreatedAtDesc();
+    public void recordView(Long productId) {
+        trendingService.recordView(productId);
     }
 }
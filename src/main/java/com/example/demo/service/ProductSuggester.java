@@ -0,0 +1,313 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.dto.SearchSuggestion;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Search-box autocomplete over available product names, brands and categories, answered
+ * from an in-memory {@link SuggestTrie} without touching the database. Each suggestion is
+ * stored under every word it contains, so "app" finds "Green Apples". Products weigh
+ * {@code 1 + reviewCount}; a brand or category weighs the sum of its products. Kept current
+ * from product change events after commit.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ProductSuggester {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int RELOAD_BATCH = 1000;
+
+    private static final Comparator<Suggestion> BEST_FIRST = Comparator
+            .comparingLong((Suggestion s) -> s.weight).reversed()
+            .thenComparingInt(s -> s.text.length())
+            .thenComparing(s -> s.text)
+            .thenComparing(s -> s.type);
+
+    private final ProductRepository productRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All guarded by lock
+    private SuggestTrie<Suggestion> trie = new SuggestTrie<>(MAX_SUGGESTIONS, BEST_FIRST);
+    private final Map<Long, Contribution> products = new HashMap<>();
+    private final Map<String, Group> brands = new HashMap<>();
+    private final Map<Long, Group> categories = new HashMap<>();
+    private volatile boolean loaded;
+
+    public List<SearchSuggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            List<Suggestion> top = trie.top(key, Math.min(limit, MAX_SUGGESTIONS));
+            List<SearchSuggestion> result = new ArrayList<>(top.size());
+            for (Suggestion suggestion : top) {
+                result.add(new SearchSuggestion(suggestion.text, suggestion.type, suggestion.id));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        if (event.getType() == ProductChangedEvent.Type.DELETED) {
+            withWriteLock(() -> remove(event.getProductId()));
+        } else {
+            ProductCardDTO card = ProductCardDTO.from(event.getProduct());
+            withWriteLock(() -> upsert(card, true));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+        if (!loaded) {
+            return;
+        }
+        List<Long> ids = event.getProductIds();
+        for (int from = 0; from < ids.size(); from += RELOAD_BATCH) {
+            List<Long> batch = ids.subList(from, Math.min(from + RELOAD_BATCH, ids.size()));
+            List<ProductCardDTO> cards = productRepository.findCardsByIdIn(batch);
+            withWriteLock(() -> {
+                Set<Long> missing = new HashSet<>(batch);
+                for (ProductCardDTO card : cards) {
+                    missing.remove(card.getId());
+                    upsert(card, true);
+                }
+                missing.forEach(this::remove);
+            });
+        }
+    }
+
+    public void reload() {
+        List<ProductCardDTO> cards = productRepository.findAllCards();
+        withWriteLock(() -> {
+            trie = new SuggestTrie<>(MAX_SUGGESTIONS, BEST_FIRST);
+            products.clear();
+            brands.clear();
+            categories.clear();
+            // Group weights settle only after every product is in, so rank once at the end
+            cards.forEach(card -> upsert(card, false));
+            trie.refreshAll();
+            loaded = true;
+        });
+        log.info("Product suggestions loaded: {} products, {} brands, {} categories",
+                products.size(), brands.size(), categories.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    private void upsert(ProductCardDTO card, boolean refresh) {
+        boolean available = Boolean.TRUE.equals(card.getIsAvailable()) && card.getName() != null;
+        long weight = 1 + (card.getReviewCount() != null ? Math.max(0, card.getReviewCount()) : 0);
+        String brandKey = card.getBrand() != null ? normalize(card.getBrand()) : "";
+        Contribution previous = products.get(card.getId());
+        if (available && previous != null
+                && previous.product.text.equals(card.getName().trim())
+                && previous.product.weight == weight
+                && previous.brandKey.equals(brandKey)
+                && Objects.equals(previous.categoryId, card.getCategoryId())) {
+            return; // e.g. a stock change: nothing suggested or ranked differs
+        }
+        remove(card.getId(), refresh);
+        if (!available) {
+            return;
+        }
+        Suggestion product = new Suggestion(card.getName().trim(), SearchSuggestion.Type.PRODUCT, card.getId(), weight);
+        addKeys(product, refresh);
+
+        if (!brandKey.isEmpty()) {
+            Group brand = brands.computeIfAbsent(brandKey, k -> new Group());
+            adjust(brand, card.getBrand().trim(), SearchSuggestion.Type.BRAND, null, weight, 1, refresh);
+        }
+        if (card.getCategoryId() != null && card.getCategoryName() != null) {
+            Group category = categories.computeIfAbsent(card.getCategoryId(), k -> new Group());
+            adjust(category, card.getCategoryName().trim(), SearchSuggestion.Type.CATEGORY, card.getCategoryId(),
+                    weight, 1, refresh);
+        }
+        products.put(card.getId(), new Contribution(product, brandKey, card.getCategoryId()));
+    }
+
+    private void remove(Long productId) {
+        remove(productId, true);
+    }
+
+    private void remove(Long productId, boolean refresh) {
+        Contribution previous = products.remove(productId);
+        if (previous == null) {
+            return;
+        }
+        removeKeys(previous.product, refresh);
+        long weight = previous.product.weight;
+        Group brand = brands.get(previous.brandKey);
+        if (brand != null) {
+            adjust(brand, brand.suggestion.text, SearchSuggestion.Type.BRAND, null, -weight, -1, refresh);
+            if (brand.products == 0) {
+                brands.remove(previous.brandKey);
+            }
+        }
+        Group category = previous.categoryId != null ? categories.get(previous.categoryId) : null;
+        if (category != null) {
+            adjust(category, category.suggestion.text, SearchSuggestion.Type.CATEGORY, previous.categoryId,
+                    -weight, -1, refresh);
+            if (category.products == 0) {
+                categories.remove(previous.categoryId);
+            }
+        }
+    }
+
+    // Suggestions are immutable, so a weight change replaces the group's suggestion
+    private void adjust(Group group, String text, SearchSuggestion.Type type, Long id,
+                        long weightDelta, int productsDelta, boolean refresh) {
+        if (group.suggestion != null) {
+            removeKeys(group.suggestion, refresh);
+        }
+        group.weight += weightDelta;
+        group.products += productsDelta;
+        group.suggestion = group.products > 0 ? new Suggestion(text, type, id, group.weight) : null;
+        if (group.suggestion != null) {
+            addKeys(group.suggestion, refresh);
+        }
+    }
+
+    private void addKeys(Suggestion suggestion, boolean refresh) {
+        for (String key : keys(suggestion.text)) {
+            trie.add(key, suggestion, refresh);
+        }
+    }
+
+    private void removeKeys(Suggestion suggestion, boolean refresh) {
+        for (String key : keys(suggestion.text)) {
+            trie.remove(key, suggestion, refresh);
+        }
+    }
+
+    // The normalized text from each word start on, so any word of it can be typed first
+    private static Set<String> keys(String text) {
+        String normalized = normalize(text);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                keys.add(normalized.substring(i, Math.min(normalized.length(), i + MAX_KEY_LENGTH)));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Lower case without accents, with every run of other characters than letters and digits
+     * turned into one space: "Crème Brûlée (4-pack)" becomes "creme brulee 4 pack".
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (space && !normalized.isEmpty()) {
+                    normalized.append(' ');
+                }
+                normalized.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Suggestion {
+        final String text;
+        final SearchSuggestion.Type type;
+        final Long id;
+        final long weight;
+
+        Suggestion(String text, SearchSuggestion.Type type, Long id, long weight) {
+            this.text = text;
+            this.type = type;
+            this.id = id;
+            this.weight = weight;
+        }
+    }
+
+    // A brand or category: its suggestion weighs the sum of its available products
+    private static final class Group {
+        Suggestion suggestion;
+        long weight;
+        int products;
+    }
+
+    // What one product added, so an update or delete can take it back out
+    private static final class Contribution {
+        final Suggestion product;
+        final String brandKey;
+        final Long categoryId;
+
+        Contribution(Suggestion product, String brandKey, Long categoryId) {
+            this.product = product;
+            this.brandKey = brandKey;
+            this.categoryId = categoryId;
+        }
+    }
+}
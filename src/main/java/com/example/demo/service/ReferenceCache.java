@@ -0,0 +1,55 @@
+package com.example.demo.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics and manual eviction for the Hibernate second-level cache regions holding
+ * users, vendors and categories (see ehcache.xml). Writes through Hibernate keep the
+ * regions current on their own; {@link #clear()} is for changes made directly in the database.
+ */
+@Component
+public class ReferenceCache {
+
+    public static final List<String> REGIONS =
+            List.of("users", "vendors", "categories", "reference-queries");
+
+    private final SessionFactory sessionFactory;
+
+    public ReferenceCache(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public Map<String, Object> stats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        for (String region : REGIONS) {
+            CacheRegionStatistics regionStats = statistics.getCacheRegionStatistics(region);
+            if (regionStats == null) {
+                continue;
+            }
+            long requests = regionStats.getHitCount() + regionStats.getMissCount();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("hits", regionStats.getHitCount());
+            values.put("misses", regionStats.getMissCount());
+            values.put("hitRate", requests == 0 ? 0.0 : (double) regionStats.getHitCount() / requests);
+            values.put("puts", regionStats.getPutCount());
+            stats.put(region, values);
+        }
+        stats.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        stats.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        return stats;
+    }
+
+    public void clear() {
+        sessionFactory.getCache().evictAllRegions();
+    }
+}
@@ -3,9 +3,11 @@ package com.example.demo.service;
 import com.example.demo.entity.Product;
 import com.example.demo.entity.Review;
 import com.example.demo.entity.User;
+import com.example.demo.event.ProductChangedEvent;
 import com.example.demo.repository.ProductRepository;
 import com.example.demo.repository.ReviewRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,13 +19,18 @@ public class ReviewService {
 
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
+    // Read-only work may run on a replica; the product cache is only ever filled from the primary
+    @Transactional(readOnly = true)
     public List<Review> getProductReviews(Long productId) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-        return reviewRepository.findByProduct(product);
+        if (!productRepository.existsById(productId)) {
+            throw new RuntimeException("Product not found");
+        }
+        return reviewRepository.findByProductId(productId);
     }
 
+    @Transactional(readOnly = true)
     public List<Review> getUserReviews(User user) {
         return reviewRepository.findByUser(user);
     }
@@ -100,6 +107,7 @@ public class ReviewService {
             product.setReviewCount(reviews.size());
         }
         productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(product, ProductChangedEvent.Type.RATING_CHANGED));
     }
 }
 
@@ -0,0 +1,231 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU + TTL cache of search result pages (ids only), keyed by normalized query and
+ * result window. Each entry records the index terms it searched, and a product write drops
+ * only the entries sharing a term with the product's text before or after the write.
+ * Entries whose words were spelling-corrected depend on the whole vocabulary and are dropped
+ * on every write. Concurrent misses for the same key wait for a single computation.
+ * <p>
+ * Scores also depend on collection-wide statistics, so a write can shift the ranking of
+ * unrelated queries slightly; the TTL bounds how long such a page is served.
+ */
+final class SearchResultCache<V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // All guarded by entries
+    private final LinkedHashMap<Key, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Key>> byTerm = new HashMap<>();
+    private final Map<String, Set<Key>> byPrefix = new HashMap<>();
+    private final Set<Key> corrected = new HashSet<>();
+
+    private final Map<Key, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so a computation racing with a write never caches stale ids
+    private final AtomicLong version = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    SearchResultCache(int maxSize, long ttlNanos) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+    }
+
+    /** The version to pass to {@link #get}, read before the state the loader will search. */
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * The cached value, or the loader's. The loader's value is cached only if nothing was
+     * invalidated since {@code loadVersion}, taken before the loader's view of the data.
+     */
+    V get(Key key, long loadVersion, Supplier<Computed<V>> loader) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                remove(key);
+                expirations.increment();
+            }
+        }
+
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        misses.increment();
+        try {
+            Computed<V> computed = loader.get();
+            synchronized (entries) {
+                if (maxSize > 0 && version.get() == loadVersion) {
+                    put(key, new Entry<>(computed, now));
+                }
+            }
+            mine.complete(computed.value);
+            return computed.value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /** Drops entries that searched any of {@code terms} or a prefix of one, and every corrected entry. */
+    void invalidate(Collection<String> terms) {
+        synchronized (entries) {
+            version.incrementAndGet();
+            Set<Key> stale = new HashSet<>(corrected);
+            for (String term : terms) {
+                Set<Key> exact = byTerm.get(term);
+                if (exact != null) {
+                    stale.addAll(exact);
+                }
+                for (int length = 1; length <= term.length() && !byPrefix.isEmpty(); length++) {
+                    Set<Key> prefixed = byPrefix.get(term.substring(0, length));
+                    if (prefixed != null) {
+                        stale.addAll(prefixed);
+                    }
+                }
+            }
+            stale.forEach(this::remove);
+            invalidations.add(stale.size());
+        }
+    }
+
+    void clear() {
+        synchronized (entries) {
+            version.incrementAndGet();
+            invalidations.add(entries.size());
+            entries.clear();
+            byTerm.clear();
+            byPrefix.clear();
+            corrected.clear();
+        }
+    }
+
+    Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long coalescedCount = coalesced.sum();
+        long requests = hitCount + missCount + coalescedCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlNanos / 1_000_000_000L);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("coalesced", coalescedCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("sizeEvictions", sizeEvictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private void put(Key key, Entry<V> entry) {
+        remove(key);
+        entries.put(key, entry);
+        entry.computed.terms.forEach(term -> byTerm.computeIfAbsent(term, t -> new HashSet<>()).add(key));
+        entry.computed.prefixes.forEach(prefix -> byPrefix.computeIfAbsent(prefix, p -> new HashSet<>()).add(key));
+        if (entry.computed.corrected) {
+            corrected.add(key);
+        }
+        Iterator<Map.Entry<Key, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize) {
+            Map.Entry<Key, Entry<V>> evicted = eldest.next();
+            eldest.remove();
+            unregister(evicted.getKey(), evicted.getValue());
+            sizeEvictions.increment();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            unregister(key, entry);
+        }
+    }
+
+    private void unregister(Key key, Entry<V> entry) {
+        unregister(byTerm, entry.computed.terms, key);
+        unregister(byPrefix, entry.computed.prefixes, key);
+        corrected.remove(key);
+    }
+
+    private static void unregister(Map<String, Set<Key>> index, Collection<String> terms, Key key) {
+        for (String term : terms) {
+            Set<Key> keys = index.get(term);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                index.remove(term);
+            }
+        }
+    }
+
+    /** A normalized query and the result window asked of it. */
+    record Key(String query, int offset, int window) {
+    }
+
+    /** A computed value with the terms it depends on. */
+    static final class Computed<V> {
+        final V value;
+        final Set<String> terms;
+        final Set<String> prefixes;
+        final boolean corrected;
+
+        Computed(V value, Set<String> terms, Set<String> prefixes, boolean corrected) {
+            this.value = value;
+            this.terms = terms;
+            this.prefixes = prefixes;
+            this.corrected = corrected;
+        }
+    }
+
+    private static final class Entry<V> {
+        final Computed<V> computed;
+        final V value;
+        final long loadedAt;
+
+        Entry(Computed<V> computed, long loadedAt) {
+            this.computed = computed;
+            this.value = computed.value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
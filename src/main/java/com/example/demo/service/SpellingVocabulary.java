@@ -0,0 +1,191 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The words of the catalog with a character trigram index, for spelling correction. Trigrams
+ * are taken over the word padded with a boundary mark on each side ("milk" gives "^mi", "mil",
+ * "ilk", "lk$"). One edit changes at most four of them (a swap of neighbours; three for any
+ * other edit), so a word within {@code k} edits shares all but at most {@code 4k} trigrams with
+ * the misspelling. Only words passing that bound and the length bound are verified with a
+ * bounded edit distance, and at most a fixed number of them.
+ * <p>
+ * Thread-safe: lookups run alongside the owner's single writer.
+ */
+final class SpellingVocabulary {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // All guarded by lock
+    private final Map<Long, Set<String>> wordsByProduct = new HashMap<>();
+    // Word -> number of products containing it
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<String, Set<String>> postings = new HashMap<>();
+
+    /** Replaces the words of a product. */
+    void put(long productId, Collection<String> words) {
+        Set<String> distinct = new LinkedHashSet<>(words);
+        lock.writeLock().lock();
+        try {
+            Set<String> previous = wordsByProduct.put(productId, distinct);
+            if (previous != null) {
+                previous.forEach(this::release);
+            }
+            distinct.forEach(this::retain);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            Set<String> previous = wordsByProduct.remove(productId);
+            if (previous != null) {
+                previous.forEach(this::release);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Catalog words within {@code maxEdits} of {@code word}, closest and then most common first.
+     * At most {@code maxCandidates} words, those sharing the most trigrams, are verified.
+     */
+    List<Correction> corrections(String word, int maxEdits, int maxCandidates) {
+        List<String> grams = trigrams(word);
+        int minShared = Math.max(1, grams.size() - 4 * maxEdits);
+        List<Correction> corrections = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> shared = new HashMap<>();
+            for (String gram : grams) {
+                Set<String> words = postings.get(gram);
+                if (words == null) {
+                    continue;
+                }
+                for (String candidate : words) {
+                    if (Math.abs(candidate.length() - word.length()) <= maxEdits) {
+                        shared.merge(candidate, 1, Integer::sum);
+                    }
+                }
+            }
+            List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+            for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+                if (candidate.getValue() >= minShared) {
+                    candidates.add(candidate);
+                }
+            }
+            candidates.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            for (int i = 0; i < candidates.size() && i < maxCandidates; i++) {
+                String candidate = candidates.get(i).getKey();
+                int distance = editDistance(word, candidate, maxEdits);
+                if (distance > 0 && distance <= maxEdits) {
+                    corrections.add(new Correction(candidate, distance, counts.get(candidate)));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        corrections.sort(Comparator.comparingInt((Correction c) -> c.distance)
+                .thenComparing(Comparator.comparingInt((Correction c) -> c.count).reversed())
+                .thenComparing(c -> c.word));
+        return corrections;
+    }
+
+    private void retain(String word) {
+        if (counts.merge(word, 1, Integer::sum) == 1) {
+            for (String gram : trigrams(word)) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(word);
+            }
+        }
+    }
+
+    private void release(String word) {
+        Integer count = counts.get(word);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            counts.put(word, count - 1);
+            return;
+        }
+        counts.remove(word);
+        for (String gram : trigrams(word)) {
+            Set<String> words = postings.get(gram);
+            if (words != null && words.remove(word) && words.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    // Distinct, in order of first occurrence
+    private static List<String> trigrams(String word) {
+        String padded = "^" + word + "$";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return new ArrayList<>(grams);
+    }
+
+    /**
+     * Edit distance counting a swap of neighbours as one edit ("yoghrut" to "yoghurt"), or
+     * {@code max + 1} as soon as it is known to exceed {@code max}.
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] row = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            row[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(row[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, previous2[j - 2] + 1);
+                }
+                row[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = row;
+            row = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    static final class Correction {
+        final String word;
+        final int distance;
+        // Products containing the word
+        final int count;
+
+        Correction(String word, int distance, int count) {
+            this.word = word;
+            this.distance = distance;
+            this.count = count;
+        }
+    }
+}
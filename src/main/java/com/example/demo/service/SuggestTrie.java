@@ -0,0 +1,258 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Radix trie (single-child chains collapsed into one edge label) from string keys to values.
+ * Every node caches the best {@code k} values of its subtree, so a prefix lookup is a walk
+ * down at most {@code prefix.length()} characters plus a copy of that cached list. Adding or
+ * removing a key refreshes the caches along its path only: a node's best values are always
+ * among its own values and its children's cached best values.
+ * <p>
+ * One value may be stored under several keys; it is reported once. Not thread-safe; the
+ * owner serialises access.
+ */
+final class SuggestTrie<T> {
+
+    private static final Object[] NONE = new Object[0];
+
+    private final int k;
+    private final Comparator<? super T> order;
+    private final Node root = new Node("");
+
+    /**
+     * @param k     number of best values cached per node, the most a lookup can return
+     * @param order best value first
+     */
+    SuggestTrie(int k, Comparator<? super T> order) {
+        this.k = k;
+        this.order = order;
+    }
+
+    /**
+     * Stores {@code value} under {@code key}. With {@code refresh} false the cached best values
+     * are left stale, for bulk loads that call {@link #refreshAll()} once at the end.
+     */
+    void add(String key, T value, boolean refresh) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                child = new Node(key.substring(i));
+                node.addChild(child);
+                i = key.length();
+            } else {
+                int common = commonPrefix(child.label, key, i);
+                if (common < child.label.length()) {
+                    // Split the edge where the new key leaves it
+                    Node split = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    split.addChild(child);
+                    node.replaceChild(split);
+                    child = split;
+                }
+                i += common;
+            }
+            path.add(child);
+            node = child;
+        }
+        if (node.values == null) {
+            node.values = new ArrayList<>(1);
+        }
+        node.values.add(value);
+        if (refresh) {
+            for (int d = path.size() - 1; d >= 0; d--) {
+                refresh(path.get(d));
+            }
+        }
+    }
+
+    /**
+     * Removes {@code value} (by identity) from {@code key}; a no-op when it is not stored there.
+     * {@code refresh} as for {@link #add}.
+     */
+    void remove(String key, T value, boolean refresh) {
+        List<Node> path = new ArrayList<>();
+        path.add(root);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) {
+                return;
+            }
+            i += child.label.length();
+            path.add(child);
+            node = child;
+        }
+        if (node.values == null || !removeIdentity(node.values, value)) {
+            return;
+        }
+        if (node.values.isEmpty()) {
+            node.values = null;
+        }
+        // Bottom-up: drop nodes left empty, collapse nodes left with one child, refresh the rest
+        for (int d = path.size() - 1; d >= 1; d--) {
+            Node current = path.get(d);
+            Node parent = path.get(d - 1);
+            if (current.values == null && current.childCount == 0) {
+                parent.removeChild(current.label.charAt(0));
+            } else if (current.values == null && current.childCount == 1) {
+                Node only = current.children[0];
+                only.label = current.label + only.label;
+                parent.replaceChild(only);
+            } else if (refresh) {
+                refresh(current);
+            }
+        }
+        if (refresh) {
+            refresh(root);
+        }
+    }
+
+    /** Up to {@code limit} (at most {@code k}) best values stored under keys starting with {@code prefix}. */
+    @SuppressWarnings("unchecked")
+    List<T> top(String prefix, int limit) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.child(prefix.charAt(i));
+            if (child == null) {
+                return List.of();
+            }
+            int common = commonPrefix(child.label, prefix, i);
+            if (i + common == prefix.length()) {
+                node = child; // the prefix ends on or inside this edge
+                break;
+            }
+            if (common < child.label.length()) {
+                return List.of();
+            }
+            i += common;
+            node = child;
+        }
+        Object[] top = node.top;
+        int n = Math.min(Math.max(0, limit), top.length);
+        List<T> result = new ArrayList<>(n);
+        for (int j = 0; j < n; j++) {
+            result.add((T) top[j]);
+        }
+        return result;
+    }
+
+    void refreshAll() {
+        refreshSubtree(root);
+    }
+
+    private void refreshSubtree(Node node) {
+        for (int c = 0; c < node.childCount; c++) {
+            refreshSubtree(node.children[c]);
+        }
+        refresh(node);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void refresh(Node node) {
+        List<T> candidates = new ArrayList<>();
+        if (node.values != null) {
+            for (Object value : node.values) {
+                candidates.add((T) value);
+            }
+        }
+        for (int c = 0; c < node.childCount; c++) {
+            for (Object value : node.children[c].top) {
+                candidates.add((T) value);
+            }
+        }
+        if (candidates.isEmpty()) {
+            node.top = NONE;
+            return;
+        }
+        candidates.sort(order);
+        Map<T, Boolean> seen = new IdentityHashMap<>();
+        List<T> best = new ArrayList<>(Math.min(k, candidates.size()));
+        for (T candidate : candidates) {
+            if (best.size() == k) {
+                break;
+            }
+            if (seen.put(candidate, Boolean.TRUE) == null) {
+                best.add(candidate);
+            }
+        }
+        node.top = best.toArray();
+    }
+
+    private static int commonPrefix(String label, String key, int from) {
+        int max = Math.min(label.length(), key.length() - from);
+        int n = 0;
+        while (n < max && label.charAt(n) == key.charAt(from + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static boolean removeIdentity(List<Object> values, Object value) {
+        for (int j = 0; j < values.size(); j++) {
+            if (values.get(j) == value) {
+                values.remove(j);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Node {
+        String label;
+        // Children sorted by the first character of their label
+        char[] firsts = new char[0];
+        Node[] children;
+        int childCount;
+        List<Object> values;
+        Object[] top = NONE;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(firsts, 0, childCount, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        void addChild(Node child) {
+            char c = child.label.charAt(0);
+            int index = -Arrays.binarySearch(firsts, 0, childCount, c) - 1;
+            if (childCount == firsts.length) {
+                int capacity = Math.max(2, childCount * 2);
+                firsts = Arrays.copyOf(firsts, capacity);
+                children = children == null ? new Node[capacity] : Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(firsts, index, firsts, index + 1, childCount - index);
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            firsts[index] = c;
+            children[index] = child;
+            childCount++;
+        }
+
+        // Replaces the child starting with the same character
+        void replaceChild(Node child) {
+            children[Arrays.binarySearch(firsts, 0, childCount, child.label.charAt(0))] = child;
+        }
+
+        void removeChild(char c) {
+            int index = Arrays.binarySearch(firsts, 0, childCount, c);
+            System.arraycopy(firsts, index + 1, firsts, index, childCount - index - 1);
+            System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Trending products from product page views, without a database write per view.
+ * <p>
+ * Views land in small per-thread-stripe hash tables of primitive arrays (no allocation on
+ * the request path). A periodic flush drains them into a count-min sketch whose counts
+ * decay with a configurable half-life, and a min-heap keeps the {@link #CANDIDATES}
+ * highest-scoring products. Only the published top list is resolved to cards.
+ */
+@Service
+public class TrendingService {
+
+    public static final int MAX_TRENDING = 50;
+
+    private static final int CANDIDATES = 200;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 1 << 14;
+    // Candidates that decay below this many views drop out of the heap
+    private static final double MIN_SCORE = 0.5;
+
+    private final ProductRepository productRepository;
+    private final double halfLifeNanos;
+    private final Stripe[] stripes;
+
+    // Guarded by this
+    private final DecayingCountMinSketch sketch = new DecayingCountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+    private final PriorityQueue<Candidate> heap = new PriorityQueue<>(Comparator.comparingDouble(c -> c.score));
+    private final Map<Long, Candidate> candidates = new HashMap<>();
+    private long decayedAt = System.nanoTime();
+    private boolean stale;
+
+    private volatile List<Long> trendingIds = List.of();
+    private volatile List<ProductCardDTO> trending = List.of();
+
+    public TrendingService(ProductRepository productRepository,
+                           @Value("${product.trending.half-life-minutes:60}") long halfLifeMinutes) {
+        this.productRepository = productRepository;
+        this.halfLifeNanos = halfLifeMinutes * 60_000_000_000.0;
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public void recordView(long productId) {
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        synchronized (stripe) {
+            if (!stripe.increment(productId)) {
+                // Stripe full before the next flush; fold it into the sketch now
+                synchronized (this) {
+                    drain(stripe);
+                }
+                stripe.increment(productId);
+            }
+        }
+    }
+
+    public List<ProductCardDTO> getTrending(int limit) {
+        List<ProductCardDTO> current = trending;
+        return current.size() <= limit ? current : current.subList(0, limit);
+    }
+
+    @Scheduled(fixedDelayString = "${product.trending.flush-ms:5000}")
+    public void flush() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                synchronized (this) {
+                    drain(stripe);
+                }
+            }
+        }
+        List<Long> top;
+        synchronized (this) {
+            decay();
+            top = heap.stream()
+                    .sorted(Comparator.comparingDouble((Candidate c) -> c.score).reversed()
+                            .thenComparing(c -> c.productId))
+                    .limit(MAX_TRENDING)
+                    .map(c -> c.productId)
+                    .toList();
+            if (top.equals(trendingIds) && !stale) {
+                return;
+            }
+            stale = false;
+        }
+        publish(top);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (this) {
+            if (event.getType() == ProductChangedEvent.Type.DELETED) {
+                Candidate candidate = candidates.remove(event.getProductId());
+                if (candidate != null) {
+                    heap.remove(candidate);
+                }
+            }
+            stale |= trendingIds.contains(event.getProductId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductBulkChangedEvent event) {
+        List<Long> current = trendingIds;
+        boolean affected = event.getProductIds().stream().anyMatch(current::contains);
+        synchronized (this) {
+            stale |= affected;
+        }
+    }
+
+    // Unavailable or deleted products keep their score but are left out of the list
+    private void publish(List<Long> top) {
+        Map<Long, ProductCardDTO> cards = top.isEmpty() ? Map.of() : productRepository.findCardsByIdIn(top).stream()
+                .filter(card -> Boolean.TRUE.equals(card.getIsAvailable()))
+                .collect(Collectors.toMap(ProductCardDTO::getId, Function.identity()));
+        List<ProductCardDTO> list = new ArrayList<>(cards.size());
+        for (Long productId : top) {
+            ProductCardDTO card = cards.get(productId);
+            if (card != null) {
+                list.add(card);
+            }
+        }
+        trendingIds = top;
+        trending = List.copyOf(list);
+    }
+
+    private void drain(Stripe stripe) {
+        if (stripe.used == 0) {
+            return;
+        }
+        long[] keys = stripe.keys;
+        int[] counts = stripe.counts;
+        for (int i = 0; i < keys.length; i++) {
+            if (counts[i] != 0) {
+                offer(keys[i], sketch.add(keys[i], counts[i]));
+            }
+        }
+        stripe.clear();
+    }
+
+    private void offer(long productId, double score) {
+        Candidate candidate = candidates.get(productId);
+        if (candidate != null) {
+            heap.remove(candidate);
+            candidate.score = score;
+            heap.add(candidate);
+            return;
+        }
+        if (heap.size() >= CANDIDATES) {
+            if (heap.peek().score >= score) {
+                return;
+            }
+            candidates.remove(heap.poll().productId);
+        }
+        candidate = new Candidate(productId, score);
+        candidates.put(productId, candidate);
+        heap.add(candidate);
+    }
+
+    // Uniform scaling keeps the heap order, so candidate scores are scaled in place
+    private void decay() {
+        long now = System.nanoTime();
+        double factor = Math.pow(0.5, (now - decayedAt) / halfLifeNanos);
+        decayedAt = now;
+        sketch.decay(factor);
+        for (Candidate candidate : heap) {
+            candidate.score *= factor;
+        }
+        while (!heap.isEmpty() && heap.peek().score < MIN_SCORE) {
+            candidates.remove(heap.poll().productId);
+        }
+    }
+
+    private static final class Candidate {
+        final long productId;
+        double score;
+
+        Candidate(long productId, double score) {
+            this.productId = productId;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Open-addressing productId -> view count table over primitive arrays. A zero count
+     * marks a free slot; entries are never removed individually, only cleared on drain.
+     */
+    private static final class Stripe {
+        private static final int CAPACITY = 4096;
+        private static final int MAX_USED = CAPACITY * 3 / 4;
+
+        final long[] keys = new long[CAPACITY];
+        final int[] counts = new int[CAPACITY];
+        private int used;
+
+        // False when the key is new and the table is at its load limit
+        boolean increment(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            int slot = (int) (h ^ (h >>> 32)) & (CAPACITY - 1);
+            while (counts[slot] != 0) {
+                if (keys[slot] == key) {
+                    counts[slot]++;
+                    return true;
+                }
+                slot = (slot + 1) & (CAPACITY - 1);
+            }
+            if (used == MAX_USED) {
+                return false;
+            }
+            keys[slot] = key;
+            counts[slot] = 1;
+            used++;
+            return true;
+        }
+
+        void clear() {
+            Arrays.fill(counts, 0);
+            used = 0;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.UserSummaryDTO;
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -11,12 +14,17 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class UserService implements UserDetailsService {
 
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MIN_CONTAINS_LENGTH = 3;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
 
@@ -54,4 +62,52 @@ public class UserService implements UserDetailsService {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
+
+    // Admin user list, oldest account first; the cursor is the last id of the previous page
+    @Transactional(readOnly = true)
+    public CursorPage<UserSummaryDTO> listUsers(String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return page(userRepository.findSummariesAfter(afterId(cursor), PageRequest.of(0, pageSize + 1)), pageSize);
+    }
+
+    /**
+     * Users whose email or username starts with {@code query}, or with {@code contains} has it
+     * anywhere. Prefix matching is served by the email and username indexes; contains matching
+     * has to scan, so it needs at least {@value #MIN_CONTAINS_LENGTH} characters.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<UserSummaryDTO> searchUsers(String query, boolean contains, String cursor, int limit) {
+        String term = query == null ? "" : query.trim();
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (contains && term.length() < MIN_CONTAINS_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Contains search needs at least " + MIN_CONTAINS_LENGTH + " characters");
+        }
+        String escaped = term.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        String pattern = (contains ? "%" : "") + escaped + "%";
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return page(userRepository.searchSummariesAfter(pattern, afterId(cursor), PageRequest.of(0, pageSize + 1)),
+                pageSize);
+    }
+
+    private static long afterId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    // Rows were fetched one past the page size to learn whether another page exists
+    private static CursorPage<UserSummaryDTO> page(List<UserSummaryDTO> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<UserSummaryDTO> items = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore ? String.valueOf(items.get(items.size() - 1).getId()) : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
+    }
 }
@@ -3,9 +3,11 @@ package com.example.demo.service;
 import com.example.demo.entity.User;
 import com.example.demo.entity.UserRole;
 import com.example.demo.entity.Vendor;
+import com.example.demo.event.CatalogLabelChangedEvent;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.repository.VendorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +23,9 @@ public class VendorService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // Create vendor profile
     @Transactional
     public Vendor createVendor(String email, Vendor vendorData) {
@@ -73,6 +78,7 @@ public class VendorService {
                 throw new RuntimeException("Store name already taken");
             }
             vendor.setStoreName(updatedData.getStoreName());
+            eventPublisher.publishEvent(CatalogLabelChangedEvent.vendor(vendor.getId(), vendor.getStoreName()));
         }
 
         if (updatedData.getDescription() != null) {
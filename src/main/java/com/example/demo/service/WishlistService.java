@@ -3,7 +3,6 @@ package com.example.demo.service;
 import com.example.demo.entity.Product;
 import com.example.demo.entity.User;
 import com.example.demo.entity.Wishlist;
-import com.example.demo.repository.ProductRepository;
 import com.example.demo.repository.WishlistRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -16,7 +15,7 @@ import java.util.List;
 public class WishlistService {
 
     private final WishlistRepository wishlistRepository;
-    private final ProductRepository productRepository;
+    private final ProductService productService;
 
     public List<Wishlist> getUserWishlist(User user) {
         return wishlistRepository.findByUser(user);
@@ -24,8 +23,7 @@ public class WishlistService {
 
     @Transactional
     public Wishlist addToWishlist(User user, Long productId) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        Product product = productService.getProductById(productId);
 
         if (wishlistRepository.existsByUserAndProduct(user, product)) {
             throw new IllegalArgumentException("Product already in wishlist");
@@ -45,14 +43,12 @@ public class WishlistService {
 
     @Transactional
     public void removeProductFromWishlist(User user, Long productId) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        Product product = productService.getProductById(productId);
         wishlistRepository.deleteByUserAndProduct(user, product);
     }
 
     public boolean isInWishlist(User user, Long productId) {
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found"));
+        Product product = productService.getProductById(productId);
         return wishlistRepository.existsByUserAndProduct(user, product);
     }
 }
@@ -0,0 +1,64 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CartItemKeyMigrationTest {
+
+    private JdbcTemplate jdbc;
+    private CartItemKeyMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        migration = new CartItemKeyMigration(jdbc, new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void mergesDuplicateLinesIntoTheOldestBeforeAddingTheKey() {
+        jdbc.execute("CREATE TABLE cart_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, "
+                + "product_id BIGINT, quantity INT NOT NULL)");
+        jdbc.update("INSERT INTO cart_items (id, user_id, product_id, quantity) VALUES "
+                + "(1, 1, 100, 2), (2, 1, 200, 1), (3, 1, 100, 3), (4, 2, 100, 1), (5, 1, 100, 1)");
+
+        migration.migrate();
+
+        List<Map<String, Object>> rows = jdbc.queryForList("SELECT id, quantity FROM cart_items ORDER BY id");
+        assertThat(rows).extracting(row -> ((Number) row.get("id")).longValue()).containsExactly(1L, 2L, 4L);
+        assertThat(rows).extracting(row -> ((Number) row.get("quantity")).intValue()).containsExactly(6, 1, 1);
+        assertThatThrownBy(() -> jdbc.update("INSERT INTO cart_items (user_id, product_id, quantity) VALUES (2, 100, 1)"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void leavesAnExistingKeyAlone() {
+        jdbc.execute("CREATE TABLE cart_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT, "
+                + "product_id BIGINT, quantity INT NOT NULL, "
+                + "CONSTRAINT uk_cart_items_user_product UNIQUE (user_id, product_id))");
+
+        migration.migrate();
+        migration.migrate();
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM information_schema.table_constraints "
+                + "WHERE table_name = 'cart_items' AND constraint_type = 'UNIQUE'", Integer.class)).isEqualTo(1);
+    }
+}
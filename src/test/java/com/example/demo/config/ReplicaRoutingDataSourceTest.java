@@ -0,0 +1,132 @@
+package com.example.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static final String SERVICE_METHOD = "com.example.demo.service.ProductService.getProducts";
+
+    private final HikariDataSource primary = mock(HikariDataSource.class);
+    private final HikariDataSource replica = mock(HikariDataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final ReplicaRoutingDataSource dataSource =
+            new ReplicaRoutingDataSource(primary, List.of(replica), 30, 10);
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("alice@example.com", null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        endTransaction();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void outsideTransactionsUsePrimary() throws SQLException {
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void readOnlyServiceTransactionsUseReplica() throws SQLException {
+        beginTransaction(true, SERVICE_METHOD);
+
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void readOnlyTransactionsOutsideServicesUsePrimary() throws SQLException {
+        beginTransaction(true, "org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById");
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void writerReadsFromPrimaryOnlyAfterCommit() throws SQLException {
+        beginTransaction(false, SERVICE_METHOD);
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        endTransaction();
+
+        // Still running: nothing of the write is visible anywhere else yet
+        beginTransaction(true, SERVICE_METHOD);
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+        endTransaction();
+
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        beginTransaction(true, SERVICE_METHOD);
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        endTransaction();
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("bob@example.com", null, List.of()));
+        beginTransaction(true, SERVICE_METHOD);
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void rolledBackWriteKeepsReplicaReads() throws SQLException {
+        beginTransaction(false, SERVICE_METHOD);
+        dataSource.getConnection();
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        endTransaction();
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        beginTransaction(true, SERVICE_METHOD);
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void unhealthyReplicaFallsBackToPrimary() throws SQLException {
+        when(replica.getConnection()).thenThrow(new SQLException("refused"));
+        beginTransaction(true, SERVICE_METHOD);
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void explicitCredentialsAreNotSupported() {
+        assertThatThrownBy(() -> dataSource.getConnection("user", "secret"))
+                .isInstanceOf(SQLFeatureNotSupportedException.class);
+    }
+
+    private static void beginTransaction(boolean readOnly, String name) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+        TransactionSynchronizationManager.setCurrentTransactionName(name);
+    }
+
+    private static void endTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setCurrentTransactionName(null);
+    }
+}
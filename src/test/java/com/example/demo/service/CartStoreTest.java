@@ -0,0 +1,282 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.CartRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CartStoreTest {
+
+    private static final long USER = 1L;
+
+    @TempDir
+    Path journalDir;
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+    private JdbcTemplate jdbc;
+    private DataSourceTransactionManager transactionManager;
+    private CartStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbc.execute("CREATE TABLE cart_items (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id BIGINT NOT NULL, "
+                + "product_id BIGINT NOT NULL, quantity INT NOT NULL, UNIQUE (user_id, product_id))");
+        when(cartRepository.findLinesByUserId(anyLong())).thenAnswer(invocation -> jdbc.query(
+                "SELECT id, product_id, quantity FROM cart_items WHERE user_id = ? ORDER BY id",
+                (rs, row) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getInt(3)},
+                (Long) invocation.getArgument(0)));
+        store = newStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+        jdbc.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void flushWritesOnlyTheLatestQuantity() {
+        CartStore.Line line = store.add(USER, 100, 1, () -> insert(USER, 100, 1));
+        store.update(USER, line.itemId(), quantity -> quantity + 1);
+        store.update(USER, line.itemId(), quantity -> quantity + 1);
+        store.add(USER, 100, 2, () -> insert(USER, 100, 2));
+
+        assertThat(stored()).containsExactly(Map.entry(100L, 1));
+        assertThat(store.lines(USER)).containsExactly(new CartStore.Line(line.itemId(), 100, 5));
+
+        store.flush();
+
+        assertThat(stored()).containsExactly(Map.entry(100L, 5));
+    }
+
+    @Test
+    void recoverReplaysChangesJournaledButNotWritten() throws IOException {
+        CartStore.Line kept = store.add(USER, 100, 1, () -> insert(USER, 100, 1));
+        CartStore.Line removed = store.add(USER, 200, 1, () -> insert(USER, 200, 1));
+        store.update(USER, kept.itemId(), quantity -> 4);
+        store.remove(USER, removed.itemId());
+        // Crash: the first store never flushes
+        assertThat(stored()).containsOnly(Map.entry(100L, 1), Map.entry(200L, 1));
+
+        CartStore restarted = newStore();
+        try {
+            assertThat(stored()).containsExactly(Map.entry(100L, 4));
+            assertThat(restarted.lines(USER)).containsExactly(new CartStore.Line(kept.itemId(), 100, 4));
+        } finally {
+            restarted.close();
+        }
+        assertThat(segments()).isEmpty();
+    }
+
+    @Test
+    void flushedChangesAreNotReplayed() throws IOException {
+        CartStore.Line line = store.add(USER, 100, 1, () -> insert(USER, 100, 1));
+        store.update(USER, line.itemId(), quantity -> 4);
+        store.flush();
+        // Written behind the store's back; a replay of the journal would undo it
+        jdbc.update("UPDATE cart_items SET quantity = 9 WHERE id = ?", line.itemId());
+
+        CartStore restarted = newStore();
+        restarted.close();
+
+        assertThat(stored()).containsExactly(Map.entry(100L, 9));
+    }
+
+    @Test
+    void lineRemovedAndAddedAgainBeforeFlushKeepsNewQuantity() {
+        CartStore.Line line = store.add(USER, 100, 3, () -> insert(USER, 100, 3));
+        store.remove(USER, line.itemId());
+
+        // The upsert reuses the row still holding the old quantity
+        CartStore.Line again = store.add(USER, 100, 2, () -> insert(USER, 100, 2));
+
+        assertThat(again).isEqualTo(new CartStore.Line(line.itemId(), 100, 2));
+        assertThat(store.lines(USER)).containsExactly(again);
+        store.flush();
+        assertThat(stored()).containsExactly(Map.entry(100L, 2));
+    }
+
+    @Test
+    void editRemovingAndAddingTheSameProductKeepsNewQuantity() {
+        CartStore.Line line = store.add(USER, 100, 3, () -> insert(USER, 100, 3));
+
+        List<CartStore.Line> lines = store.edit(USER, edit -> {
+            edit.remove(line.itemId());
+            edit.add(100, 5);
+        }, added -> {
+            added.forEach((productId, quantity) -> insert(USER, productId, quantity));
+            return List.of(storedLine(USER, 100));
+        });
+
+        assertThat(lines).containsExactly(new CartStore.Line(line.itemId(), 100, 5));
+        store.flush();
+        assertThat(stored()).containsExactly(Map.entry(100L, 5));
+    }
+
+    @Test
+    void reloadAfterEvictLaysPendingChangesOverStoredRows() {
+        CartStore.Line kept = store.add(USER, 100, 1, () -> insert(USER, 100, 1));
+        CartStore.Line removed = store.add(USER, 200, 1, () -> insert(USER, 200, 1));
+        store.update(USER, kept.itemId(), quantity -> 7);
+        store.remove(USER, removed.itemId());
+
+        store.evict(USER);
+
+        assertThat(store.lines(USER)).containsExactly(new CartStore.Line(kept.itemId(), 100, 7));
+        assertThat(stored()).containsOnly(Map.entry(100L, 1), Map.entry(200L, 1));
+    }
+
+    @Test
+    void failedFlushKeepsChangesForTheNextOne() {
+        CartStore.Line line = store.add(USER, 100, 1, () -> insert(USER, 100, 1));
+        store.update(USER, line.itemId(), quantity -> 6);
+
+        jdbc.execute("ALTER TABLE cart_items RENAME TO cart_items_away");
+        store.flush();
+        jdbc.execute("ALTER TABLE cart_items_away RENAME TO cart_items");
+        assertThat(stored()).containsExactly(Map.entry(100L, 1));
+
+        store.update(USER, line.itemId(), quantity -> quantity + 1);
+        store.flush();
+        assertThat(stored()).containsExactly(Map.entry(100L, 7));
+    }
+
+    @Test
+    void flushForOneUserLeavesOthersPending() {
+        CartStore.Line mine = store.add(USER, 100, 1, () -> insert(USER, 100, 1));
+        CartStore.Line theirs = store.add(2L, 100, 1, () -> insert(2L, 100, 1));
+        store.update(USER, mine.itemId(), quantity -> 3);
+        store.update(2L, theirs.itemId(), quantity -> 3);
+
+        store.flush(USER);
+
+        assertThat(jdbc.queryForObject("SELECT quantity FROM cart_items WHERE id = ?", Integer.class, mine.itemId())).isEqualTo(3);
+        assertThat(jdbc.queryForObject("SELECT quantity FROM cart_items WHERE id = ?", Integer.class, theirs.itemId())).isEqualTo(1);
+    }
+
+    @Test
+    void insertForOneUserDoesNotHoldUpOthers() throws Exception {
+        CartStore.Line theirs = store.add(2L, 100, 1, () -> insert(2L, 100, 1));
+        CountDownLatch inserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<CartStore.Line> mine = executor.submit(() -> store.add(USER, 100, 1, () -> {
+                inserting.countDown();
+                await(release);
+                return insert(USER, 100, 1);
+            }));
+            assertThat(inserting.await(5, TimeUnit.SECONDS)).isTrue();
+
+            store.update(2L, theirs.itemId(), quantity -> 4);
+            store.evict(2L);
+            assertThat(store.lines(2L)).containsExactly(new CartStore.Line(theirs.itemId(), 100, 4));
+            store.flush(2L);
+
+            release.countDown();
+            assertThat(mine.get(5, TimeUnit.SECONDS).quantity()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        assertThat(jdbc.queryForObject("SELECT quantity FROM cart_items WHERE id = ?", Integer.class, theirs.itemId())).isEqualTo(4);
+    }
+
+    @Test
+    void flushDuringInsertLeavesTheRemovalItMayReviveAlone() throws Exception {
+        CartStore.Line line = store.add(USER, 100, 3, () -> insert(USER, 100, 3));
+        store.remove(USER, line.itemId());
+        CountDownLatch inserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<CartStore.Line> again = executor.submit(() -> store.add(USER, 100, 2, () -> {
+                inserting.countDown();
+                await(release);
+                return insert(USER, 100, 2);
+            }));
+            assertThat(inserting.await(5, TimeUnit.SECONDS)).isTrue();
+
+            store.flush();
+            assertThat(stored()).containsExactly(Map.entry(100L, 3));
+
+            release.countDown();
+            assertThat(again.get(5, TimeUnit.SECONDS)).isEqualTo(new CartStore.Line(line.itemId(), 100, 2));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+        store.flush();
+        assertThat(stored()).containsExactly(Map.entry(100L, 2));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private CartStore newStore() throws IOException {
+        CartStore cartStore = new CartStore(cartRepository, jdbc, transactionManager, journalDir.toString(), 30);
+        cartStore.recover();
+        return cartStore;
+    }
+
+    // What CartService's insert callbacks do: upsert the row, then read it back. H2 does not parse
+    // the row alias CartRepository.upsertLine uses, so this keeps the VALUES() form it replaced
+    private CartStore.Line insert(long userId, long productId, int quantity) {
+        jdbc.update("INSERT INTO cart_items (user_id, product_id, quantity) VALUES (?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)", userId, productId, quantity);
+        return storedLine(userId, productId);
+    }
+
+    private CartStore.Line storedLine(long userId, long productId) {
+        return jdbc.queryForObject("SELECT id, product_id, quantity FROM cart_items WHERE user_id = ? AND product_id = ?",
+                (rs, row) -> new CartStore.Line(rs.getLong(1), rs.getLong(2), rs.getInt(3)), userId, productId);
+    }
+
+    // Product id to quantity of USER's stored rows
+    private Map<Long, Integer> stored() {
+        Map<Long, Integer> rows = new LinkedHashMap<>();
+        jdbc.query("SELECT product_id, quantity FROM cart_items WHERE user_id = ? ORDER BY id",
+                (RowCallbackHandler) rs -> rows.put(rs.getLong(1), rs.getInt(2)), USER);
+        return rows;
+    }
+
+    // Journal segments holding records
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(file -> file.toFile().length() > 0).toList();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.dto.ProductCursor;
+import com.example.demo.dto.ProductFilter;
+import com.example.demo.dto.ProductSort;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTest {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final List<ProductFilter> FILTERS = List.of(
+            new ProductFilter(),
+            ProductFilter.builder().categoryId(10L).build(),
+            ProductFilter.builder().vendorId(7L).availableOnly(true).build(),
+            ProductFilter.builder().minPrice(2.0).maxPrice(6.0).build());
+
+    @Test
+    void editedSnapshotMatchesRebuiltOne() {
+        Map<Long, ProductCardDTO> cards = new TreeMap<>();
+        for (long id = 1; id <= 12; id++) {
+            cards.put(id, card(id, "Product " + (13 - id), id % 4 == 0 ? null : (double) (id % 5), id % 2 == 0 ? 10L : 20L));
+        }
+        CatalogSnapshot base = CatalogSnapshot.build(new ArrayList<>(cards.values()), 1);
+        List<ProductCardDTO> before = base.findAll(null);
+
+        CatalogSnapshot.Editor editor = base.edit();
+        ProductCardDTO renamed = card(3, "Aardvark food", 9.5, 20L);
+        renamed.setIsAvailable(false);
+        renamed.setBrand("New brand");
+        editor.upsert(renamed);
+        cards.put(3L, renamed);
+        ProductCardDTO moved = card(8, null, 1.0, 30L);
+        moved.setVendorId(8L);
+        moved.setVendorStoreName("Store 8");
+        editor.upsert(moved);
+        cards.put(8L, moved);
+        editor.delete(5);
+        cards.remove(5L);
+        editor.delete(99);
+        ProductCardDTO appended = card(13, "product 1", 3.0, 10L);
+        editor.upsert(appended);
+        cards.put(13L, appended);
+        CatalogSnapshot edited = editor.publish();
+
+        assertThat(edited.getVersion()).isEqualTo(2);
+        assertSameListings(edited, CatalogSnapshot.build(new ArrayList<>(cards.values()), 2));
+        assertThat(edited.countLive()).isEqualTo(12);
+        assertThat(edited.countAvailable()).isEqualTo(11);
+        assertThat(base.findAll(null)).isEqualTo(before);
+    }
+
+    @Test
+    void insertBelowHighestIdRebuildsOnPublish() {
+        Map<Long, ProductCardDTO> cards = new TreeMap<>();
+        for (long id : new long[]{1, 2, 5, 6}) {
+            cards.put(id, card(id, "Product " + id, (double) id, 10L));
+        }
+        CatalogSnapshot base = CatalogSnapshot.build(new ArrayList<>(cards.values()), 1);
+
+        CatalogSnapshot.Editor editor = base.edit();
+        editor.upsert(card(4, "Product 4", 4.0, 10L));
+        ProductCardDTO three = card(3, "Product 3", 3.0, 10L);
+        editor.upsert(card(3, "Product 3", 30.0, 10L));
+        editor.upsert(three);
+        editor.delete(4);
+        editor.delete(6);
+        cards.put(3L, three);
+        cards.remove(6L);
+        CatalogSnapshot edited = editor.publish();
+
+        assertThat(edited.findAll(null)).extracting(ProductCardDTO::getId).containsExactly(1L, 2L, 3L, 5L);
+        assertSameListings(edited, CatalogSnapshot.build(new ArrayList<>(cards.values()), 2));
+    }
+
+    @Test
+    void manyDeletesRebuildOnPublish() {
+        Map<Long, ProductCardDTO> cards = new TreeMap<>();
+        for (long id = 1; id <= 200; id++) {
+            cards.put(id, card(id, "Product " + id, (double) (id % 7), id % 3 == 0 ? 10L : 20L));
+        }
+        CatalogSnapshot base = CatalogSnapshot.build(new ArrayList<>(cards.values()), 1);
+
+        CatalogSnapshot.Editor editor = base.edit();
+        for (long id = 1; id <= 120; id++) {
+            if (id % 10 != 0) {
+                editor.delete(id);
+                cards.remove(id);
+            }
+        }
+        CatalogSnapshot edited = editor.publish();
+
+        assertThat(edited.countLive()).isEqualTo(cards.size());
+        assertSameListings(edited, CatalogSnapshot.build(new ArrayList<>(cards.values()), 2));
+    }
+
+    @Test
+    void successiveEditsLeaveEarlierVersionsIntact() {
+        CatalogSnapshot first = CatalogSnapshot.build(List.of(card(1, "One", 1.0, 10L), card(2, "Two", 2.0, 10L)), 1);
+
+        CatalogSnapshot.Editor editor = first.edit();
+        editor.upsert(card(1, "One", 5.0, 10L));
+        editor.upsert(card(3, "Three", 3.0, 10L));
+        CatalogSnapshot second = editor.publish();
+        editor = second.edit();
+        editor.delete(2);
+        CatalogSnapshot third = editor.publish();
+
+        assertThat(ids(first, ProductSort.PRICE)).containsExactly(1L, 2L);
+        assertThat(ids(second, ProductSort.PRICE)).containsExactly(2L, 3L, 1L);
+        assertThat(ids(third, ProductSort.PRICE)).containsExactly(3L, 1L);
+        assertThat(third.getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    void namesSortIgnoringCaseAndAccentsWithNullsFirst() {
+        CatalogSnapshot snapshot = CatalogSnapshot.build(List.of(
+                card(1, "banana", 1.0, 10L),
+                card(2, "Äpple", 1.0, 10L),
+                card(3, "apple", 1.0, 10L),
+                card(4, "Banana", 1.0, 10L),
+                card(5, null, 1.0, 10L),
+                card(6, "cherry", 1.0, 10L)), 1);
+
+        assertThat(ids(snapshot, ProductSort.NAME)).containsExactly(5L, 2L, 3L, 1L, 4L, 6L);
+
+        ProductCardDTO apple = snapshot.findAll(null).get(2);
+        ProductCursor cursor = ProductCursor.after(apple, ProductSort.NAME, Sort.Direction.ASC);
+        assertThat(snapshot.find(new ProductFilter(), ProductSort.NAME, Sort.Direction.ASC, cursor, 10))
+                .extracting(ProductCardDTO::getId).containsExactly(1L, 4L, 6L);
+    }
+
+    @Test
+    void ratingsReadBackAsStored() {
+        ProductCardDTO rated = card(1, "One", 1.0, 10L);
+        rated.setAverageRating(4.3);
+        ProductCardDTO unrated = card(2, "Two", 1.0, 10L);
+        unrated.setAverageRating(null);
+        CatalogSnapshot snapshot = CatalogSnapshot.build(List.of(rated, unrated), 1);
+
+        assertThat(snapshot.findAll(null)).extracting(ProductCardDTO::getAverageRating).containsExactly(4.3, null);
+
+        CatalogSnapshot.Editor editor = snapshot.edit();
+        ProductCardDTO rerated = card(2, "Two", 1.0, 10L);
+        rerated.setAverageRating(4.7);
+        editor.upsert(rerated);
+        CatalogSnapshot edited = editor.publish();
+
+        assertThat(walk(edited, new ProductFilter(), ProductSort.AVERAGE_RATING, Sort.Direction.DESC))
+                .extracting(ProductCardDTO::getAverageRating).containsExactly(4.7, 4.3);
+        ProductCursor cursor = ProductCursor.after(edited.findAll(null).get(1), ProductSort.AVERAGE_RATING, Sort.Direction.DESC);
+        assertThat(edited.find(new ProductFilter(), ProductSort.AVERAGE_RATING, Sort.Direction.DESC, cursor, 10))
+                .extracting(ProductCardDTO::getId).containsExactly(1L);
+    }
+
+    @Test
+    void renamesRelabelEveryCardOfTheCategoryOrVendor() {
+        CatalogSnapshot base = CatalogSnapshot.build(List.of(
+                card(1, "One", 1.0, 10L), card(2, "Two", 2.0, 10L), card(3, "Three", 3.0, 20L)), 1);
+
+        CatalogSnapshot.Editor editor = base.edit();
+        editor.renameCategory(10, "Fruit");
+        editor.renameVendor(7, "Corner Shop");
+        editor.renameCategory(99, "No products");
+        CatalogSnapshot renamed = editor.publish();
+
+        assertThat(renamed.findAll(null)).extracting(ProductCardDTO::getCategoryName)
+                .containsExactly("Fruit", "Fruit", "Category 20");
+        assertThat(renamed.findAll(7L)).extracting(ProductCardDTO::getVendorStoreName).containsExactly("Corner Shop");
+        assertThat(renamed.find(ProductFilter.builder().categoryId(99L).build(), ProductSort.PRICE, Sort.Direction.ASC, null, 10))
+                .isEmpty();
+        assertThat(base.findAll(null)).extracting(ProductCardDTO::getCategoryName)
+                .containsExactly("Category 10", "Category 10", "Category 20");
+    }
+
+    // Every sort, direction and filter, walked two rows at a time through cursors
+    private static void assertSameListings(CatalogSnapshot actual, CatalogSnapshot expected) {
+        assertThat(actual.findAll(null)).isEqualTo(expected.findAll(null));
+        assertThat(actual.findAll(7L)).isEqualTo(expected.findAll(7L));
+        for (ProductSort sort : ProductSort.values()) {
+            for (Sort.Direction direction : Sort.Direction.values()) {
+                for (ProductFilter filter : FILTERS) {
+                    assertThat(walk(actual, filter, sort, direction))
+                            .as("%s %s %s", sort, direction, filter)
+                            .isEqualTo(walk(expected, filter, sort, direction));
+                }
+            }
+        }
+    }
+
+    private static List<ProductCardDTO> walk(CatalogSnapshot snapshot, ProductFilter filter,
+                                             ProductSort sort, Sort.Direction direction) {
+        List<ProductCardDTO> all = new ArrayList<>();
+        ProductCursor cursor = null;
+        while (true) {
+            List<ProductCardDTO> page = snapshot.find(filter, sort, direction, cursor, 2);
+            all.addAll(page);
+            if (page.size() < 2) {
+                return all;
+            }
+            cursor = ProductCursor.after(page.get(page.size() - 1), sort, direction);
+        }
+    }
+
+    private static List<Long> ids(CatalogSnapshot snapshot, ProductSort sort) {
+        return walk(snapshot, new ProductFilter(), sort, Sort.Direction.ASC).stream().map(ProductCardDTO::getId).toList();
+    }
+
+    private static ProductCardDTO card(long id, String name, Double price, Long categoryId) {
+        return new ProductCardDTO(id, name, "/img/" + id + ".png", "Brand " + id % 3, "kg", price, 0.0, 10,
+                true, id % 2 == 0, id % 3 + 0.5, (int) id, categoryId, "Category " + categoryId,
+                id % 2 == 0 ? 7L : 9L, id % 2 == 0 ? "Store 7" : "Store 9", EPOCH.plusHours(id % 4));
+    }
+}
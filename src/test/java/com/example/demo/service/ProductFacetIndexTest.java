@@ -0,0 +1,139 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.FacetFilter;
+import com.example.demo.dto.ProductCardDTO;
+import com.example.demo.entity.Category;
+import com.example.demo.entity.Product;
+import com.example.demo.event.ProductBulkChangedEvent;
+import com.example.demo.event.ProductChangedEvent;
+import com.example.demo.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductFacetIndexTest {
+
+    private static final FacetFilter ALL = new FacetFilter();
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductFacetIndex index = new ProductFacetIndex(productRepository);
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findAllCards()).thenReturn(List.of(
+                card(1L, 10L, "Acme", 4.0, true),
+                card(2L, 10L, "acme ", 12.0, true),
+                card(3L, 20L, "Other", 30.0, false)));
+        index.reload();
+    }
+
+    @Test
+    void searchCountsLoadedProducts() {
+        ProductFacetIndex.Result result = index.search(ALL, 0, 10);
+
+        assertThat(result.ids).containsExactly(3L, 2L, 1L);
+        assertThat(result.total).isEqualTo(3);
+        assertThat(result.facets.get(ProductFacetIndex.CATEGORY)).containsExactly(Map.entry("10", 2), Map.entry("20", 1));
+        assertThat(result.facets.get(ProductFacetIndex.BRAND)).containsExactly(Map.entry("acme", 2), Map.entry("other", 1));
+        assertThat(result.facets.get(ProductFacetIndex.AVAILABLE)).containsEntry("true", 2).containsEntry("false", 1);
+        assertThat(result.facets.get(ProductFacetIndex.PRICE))
+                .containsEntry("0-5", 1).containsEntry("10-25", 1).containsEntry("25-50", 1);
+    }
+
+    @Test
+    void updateMovesProductBetweenFacetValues() {
+        index.onProductChanged(ProductChangedEvent.of(product(1L, 20L, "Other", 30.0, false), ProductChangedEvent.Type.UPDATED));
+
+        ProductFacetIndex.Result result = index.search(ALL, 0, 10);
+        assertThat(result.total).isEqualTo(3);
+        assertThat(result.facets.get(ProductFacetIndex.CATEGORY)).containsExactly(Map.entry("20", 2), Map.entry("10", 1));
+        assertThat(result.facets.get(ProductFacetIndex.BRAND)).containsExactly(Map.entry("other", 2), Map.entry("acme", 1));
+        assertThat(result.facets.get(ProductFacetIndex.AVAILABLE)).containsEntry("true", 1).containsEntry("false", 2);
+        assertThat(result.facets.get(ProductFacetIndex.PRICE)).doesNotContainKey("0-5");
+
+        FacetFilter acme = FacetFilter.builder().brands(List.of("ACME")).build();
+        assertThat(index.search(acme, 0, 10).ids).containsExactly(2L);
+    }
+
+    @Test
+    void deleteDropsProductFromIdsAndCounts() {
+        index.onProductChanged(ProductChangedEvent.deleted(3L));
+
+        ProductFacetIndex.Result result = index.search(ALL, 0, 10);
+        assertThat(result.ids).containsExactly(2L, 1L);
+        assertThat(result.total).isEqualTo(2);
+        assertThat(result.facets.get(ProductFacetIndex.CATEGORY)).containsExactly(Map.entry("10", 2));
+        assertThat(result.facets.get(ProductFacetIndex.BRAND)).containsExactly(Map.entry("acme", 2));
+        assertThat(result.facets.get(ProductFacetIndex.AVAILABLE)).containsEntry("true", 2).containsEntry("false", 0);
+
+        FacetFilter other = FacetFilter.builder().categoryIds(List.of(20L)).build();
+        assertThat(index.search(other, 0, 10).total).isZero();
+    }
+
+    @Test
+    void bulkChangeUpsertsFoundProductsAndRemovesMissingOnes() {
+        when(productRepository.findCardsByIdIn(anyCollection())).thenReturn(List.of(card(2L, 20L, "Acme", 12.0, false)));
+
+        index.onProductsChanged(new ProductBulkChangedEvent(List.of(2L, 3L)));
+
+        ProductFacetIndex.Result result = index.search(ALL, 0, 10);
+        assertThat(result.ids).containsExactly(2L, 1L);
+        assertThat(result.facets.get(ProductFacetIndex.CATEGORY)).containsExactly(Map.entry("10", 1), Map.entry("20", 1));
+        assertThat(result.facets.get(ProductFacetIndex.AVAILABLE)).containsEntry("true", 1).containsEntry("false", 1);
+    }
+
+    @Test
+    void productCreatedBelowHighestIdStillPagesInIdOrder() {
+        index.onProductChanged(ProductChangedEvent.of(product(5L, 10L, "Acme", 1.0, true), ProductChangedEvent.Type.CREATED));
+        index.onProductChanged(ProductChangedEvent.of(product(4L, 10L, "Acme", 1.0, true), ProductChangedEvent.Type.CREATED));
+
+        assertThat(index.search(ALL, 0, 10).ids).containsExactly(5L, 4L, 3L, 2L, 1L);
+        assertThat(index.search(ALL, 1, 2).ids).containsExactly(4L, 3L);
+    }
+
+    @Test
+    void countsSurviveCompactionAfterManyDeletes() {
+        List<ProductCardDTO> cards = new ArrayList<>();
+        LongStream.rangeClosed(1, 200).forEach(id -> cards.add(card(id, id % 2 == 0 ? 10L : 20L, "Acme", 4.0, true)));
+        when(productRepository.findAllCards()).thenReturn(cards);
+        index.reload();
+
+        for (long id = 1; id <= 150; id++) {
+            index.onProductChanged(ProductChangedEvent.deleted(id));
+        }
+        index.onProductChanged(ProductChangedEvent.of(product(160L, 20L, "Acme", 4.0, false), ProductChangedEvent.Type.UPDATED));
+
+        ProductFacetIndex.Result result = index.search(ALL, 0, 3);
+        assertThat(result.ids).containsExactly(200L, 199L, 198L);
+        assertThat(result.total).isEqualTo(50);
+        assertThat(result.facets.get(ProductFacetIndex.CATEGORY)).containsEntry("10", 24).containsEntry("20", 26);
+        assertThat(result.facets.get(ProductFacetIndex.AVAILABLE)).containsEntry("true", 49).containsEntry("false", 1);
+        assertThat(index.search(ALL, 48, 10).ids).containsExactly(152L, 151L);
+    }
+
+    private static ProductCardDTO card(long id, Long categoryId, String brand, Double price, boolean available) {
+        return ProductCardDTO.from(product(id, categoryId, brand, price, available));
+    }
+
+    private static Product product(long id, Long categoryId, String brand, Double price, boolean available) {
+        Category category = new Category();
+        category.setId(categoryId);
+        Product product = new Product();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setCategory(category);
+        product.setBrand(brand);
+        product.setPrice(price);
+        product.setIsAvailable(available);
+        return product;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductImportServiceTest {
+
+    @Test
+    void csvRecordsAreKeyedByNormalizedHeader() throws IOException {
+        List<Map<String, String>> records = readAll("Name,Category_Id,price\nMilk,3,1.5\n");
+
+        assertThat(records).containsExactly(Map.of("name", "Milk", "categoryid", "3", "price", "1.5"));
+    }
+
+    @Test
+    void csvQuotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        List<Map<String, String>> records = readAll("name,description\n"
+                + "\"Oat, barista\",\"Says \"\"creamy\"\"\nand foams\"\n");
+
+        assertThat(records).containsExactly(Map.of("name", "Oat, barista", "description", "Says \"creamy\"\nand foams"));
+    }
+
+    @Test
+    void csvSkipsBlankLinesAndToleratesShortRows() throws IOException {
+        List<Map<String, String>> records = readAll("name,price,stock\n\nMilk,1.5\n   \nBread,2,10\n");
+
+        assertThat(records).containsExactly(
+                Map.of("name", "Milk", "price", "1.5"),
+                Map.of("name", "Bread", "price", "2", "stock", "10"));
+    }
+
+    @Test
+    void csvUnreadableRecordFailsOnlyItsOwnRow() throws IOException {
+        ProductImportService.CsvRecords records = records("name,price\nMilk,1.5\n\"Bread,2\nCheese,4\n");
+
+        assertThat(records.hasNext()).isTrue();
+        assertThat(records.next()).isEqualTo(Map.of("name", "Milk", "price", "1.5"));
+        assertThat(records.hasNext()).isTrue();
+        assertThatThrownBy(records::next)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unterminated quoted field");
+        assertThat(records.hasNext()).isFalse();
+        assertThatThrownBy(records::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void csvWithoutHeaderIsRejected() {
+        assertThatThrownBy(() -> records("\n\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("CSV upload is empty");
+    }
+
+    @Test
+    void csvHeaderOnlyHasNoRecords() throws IOException {
+        assertThat(readAll("name,price\n")).isEmpty();
+    }
+
+    private static ProductImportService.CsvRecords records(String csv) throws IOException {
+        return new ProductImportService.CsvRecords(new BufferedReader(new StringReader(csv)));
+    }
+
+    private static List<Map<String, String>> readAll(String csv) throws IOException {
+        ProductImportService.CsvRecords records = records(csv);
+        List<Map<String, String>> all = new ArrayList<>();
+        while (records.hasNext()) {
+            all.add(records.next());
+        }
+        return all;
+    }
+}
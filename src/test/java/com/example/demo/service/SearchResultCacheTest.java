@@ -0,0 +1,162 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    private final SearchResultCache<String> cache = new SearchResultCache<>(100, HOUR);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void invalidateDropsOnlyEntriesSharingATerm() {
+        SearchResultCache.Key apple = key("apple");
+        SearchResultCache.Key pear = key("pear");
+        load(apple, Set.of("apple"), Set.of(), false);
+        load(pear, Set.of("pear"), Set.of(), false);
+
+        cache.invalidate(List.of("apple", "juice"));
+
+        assertThat(cached(apple)).isFalse();
+        assertThat(cached(pear)).isTrue();
+        assertThat(cache.stats()).containsEntry("invalidations", 1L);
+    }
+
+    @Test
+    void invalidateDropsEntriesSearchingAPrefixOfATerm() {
+        SearchResultCache.Key app = key("app*");
+        SearchResultCache.Key pea = key("pea*");
+        load(app, Set.of(), Set.of("app"), false);
+        load(pea, Set.of(), Set.of("pea"), false);
+
+        cache.invalidate(List.of("apples"));
+
+        assertThat(cached(app)).isFalse();
+        assertThat(cached(pea)).isTrue();
+    }
+
+    @Test
+    void invalidateDropsEveryCorrectedEntry() {
+        SearchResultCache.Key corrected = key("aple");
+        SearchResultCache.Key exact = key("pear");
+        load(corrected, Set.of("apple"), Set.of(), true);
+        load(exact, Set.of("pear"), Set.of(), false);
+
+        cache.invalidate(List.of("banana"));
+
+        assertThat(cached(corrected)).isFalse();
+        assertThat(cached(exact)).isTrue();
+    }
+
+    @Test
+    void valueLoadedAcrossAnInvalidationIsNotCached() {
+        SearchResultCache.Key apple = key("apple");
+        long version = cache.version();
+        cache.get(apple, version, () -> {
+            loads.incrementAndGet();
+            cache.invalidate(List.of("pear"));
+            return computed("stale", Set.of("apple"), Set.of(), false);
+        });
+
+        assertThat(cached(apple)).isFalse();
+    }
+
+    @Test
+    void droppedEntriesAreForgottenByTheTermIndex() {
+        SearchResultCache<String> small = new SearchResultCache<>(1, HOUR);
+        small.get(key("apple"), small.version(), () -> computed("apple", Set.of("apple"), Set.of(), false));
+        small.get(key("pear"), small.version(), () -> computed("pear", Set.of("pear"), Set.of(), false));
+
+        small.invalidate(List.of("apple"));
+
+        assertThat(small.stats()).containsEntry("size", 1).containsEntry("sizeEvictions", 1L)
+                .containsEntry("invalidations", 0L);
+    }
+
+    @Test
+    void expiredEntriesAreLoadedAgain() {
+        SearchResultCache<String> expiring = new SearchResultCache<>(100, 0);
+        SearchResultCache.Key apple = key("apple");
+        expiring.get(apple, expiring.version(), () -> computed("first", Set.of("apple"), Set.of(), false));
+
+        assertThat(expiring.get(apple, expiring.version(), () -> computed("second", Set.of("apple"), Set.of(), false)))
+                .isEqualTo("second");
+        assertThat(expiring.stats()).containsEntry("expirations", 1L);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        SearchResultCache.Key apple = key("apple");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> cache.get(apple, cache.version(), () -> {
+                loading.countDown();
+                await(release);
+                loads.incrementAndGet();
+                return computed("ids", Set.of("apple"), Set.of(), false);
+            }));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> second = executor.submit(() -> cache.get(apple, cache.version(), () -> {
+                loads.incrementAndGet();
+                return computed("other", Set.of("apple"), Set.of(), false);
+            }));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!cache.stats().get("coalesced").equals(1L) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("ids");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("ids");
+            assertThat(loads).hasValue(1);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    // Whether the key is served without calling the loader
+    private boolean cached(SearchResultCache.Key key) {
+        int before = loads.get();
+        load(key, Set.of(), Set.of(), false);
+        return loads.get() == before;
+    }
+
+    private void load(SearchResultCache.Key key, Set<String> terms, Set<String> prefixes, boolean corrected) {
+        cache.get(key, cache.version(), () -> {
+            loads.incrementAndGet();
+            return computed(key.query(), terms, prefixes, corrected);
+        });
+    }
+
+    private static SearchResultCache.Computed<String> computed(String value, Set<String> terms, Set<String> prefixes,
+                                                               boolean corrected) {
+        return new SearchResultCache.Computed<>(value, terms, prefixes, corrected);
+    }
+
+    private static SearchResultCache.Key key(String query) {
+        return new SearchResultCache.Key(query, 0, 20);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestTrieTest {
+
+    private record Item(String name, int score) {
+    }
+
+    private final Item apple = new Item("apple", 5);
+    private final Item apricot = new Item("apricot", 9);
+    private final Item applesauce = new Item("applesauce", 7);
+    private final Item banana = new Item("banana", 3);
+
+    private SuggestTrie<Item> trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new SuggestTrie<>(3, Comparator.comparingInt(Item::score).reversed());
+        trie.add("apple", apple, true);
+        trie.add("apricot", apricot, true);
+        trie.add("applesauce", applesauce, true);
+        trie.add("banana", banana, true);
+    }
+
+    @Test
+    void topReturnsBestValuesUnderPrefix() {
+        assertThat(trie.top("ap", 10)).containsExactly(apricot, applesauce, apple);
+        assertThat(trie.top("appl", 10)).containsExactly(applesauce, apple);
+        assertThat(trie.top("applesauce", 10)).containsExactly(applesauce);
+        assertThat(trie.top("b", 10)).containsExactly(banana);
+        assertThat(trie.top("", 2)).containsExactly(apricot, applesauce);
+    }
+
+    @Test
+    void topMissesPrefixLeavingAnEdge() {
+        assertThat(trie.top("apx", 10)).isEmpty();
+        assertThat(trie.top("applesauces", 10)).isEmpty();
+        assertThat(trie.top("c", 10)).isEmpty();
+        assertThat(trie.top("ap", 0)).isEmpty();
+    }
+
+    @Test
+    void topIsCappedAtK() {
+        Item avocado = new Item("avocado", 1);
+        trie.add("avocado", avocado, true);
+
+        assertThat(trie.top("a", 10)).containsExactly(apricot, applesauce, apple);
+    }
+
+    @Test
+    void valueUnderSeveralKeysIsReportedOnce() {
+        trie.add("sauce", applesauce, true);
+        trie.add("apple sauce", applesauce, true);
+
+        assertThat(trie.top("", 10)).containsExactly(apricot, applesauce, apple);
+        assertThat(trie.top("s", 10)).containsExactly(applesauce);
+    }
+
+    @Test
+    void removeDropsValueAndPromotesTheNextBest() {
+        trie.remove("apricot", apricot, true);
+
+        assertThat(trie.top("ap", 10)).containsExactly(applesauce, apple);
+        assertThat(trie.top("apr", 10)).isEmpty();
+        assertThat(trie.top("", 10)).containsExactly(applesauce, apple, banana);
+    }
+
+    @Test
+    void removeCollapsesChainsSoLaterLookupsStillWalk() {
+        trie.remove("apple", apple, true);
+
+        assertThat(trie.top("appl", 10)).containsExactly(applesauce);
+        assertThat(trie.top("apples", 10)).containsExactly(applesauce);
+
+        trie.add("apple", apple, true);
+        assertThat(trie.top("appl", 10)).containsExactly(applesauce, apple);
+    }
+
+    @Test
+    void removeMatchesByIdentityAndIgnoresMissingKeys() {
+        trie.remove("apple", new Item("apple", 5), true);
+        trie.remove("apples", apple, true);
+        trie.remove("kiwi", apple, true);
+
+        assertThat(trie.top("appl", 10)).containsExactly(applesauce, apple);
+    }
+
+    @Test
+    void bulkLoadIsVisibleAfterRefreshAll() {
+        SuggestTrie<Item> bulk = new SuggestTrie<>(3, Comparator.comparingInt(Item::score).reversed());
+        bulk.add("apple", apple, false);
+        bulk.add("apricot", apricot, false);
+        bulk.add("banana", banana, false);
+        bulk.refreshAll();
+
+        assertThat(bulk.top("a", 10)).containsExactly(apricot, apple);
+        assertThat(bulk.top("", 10)).containsExactly(apricot, apple, banana);
+    }
+}